@@ -0,0 +1,76 @@
+package programs.benchmarks;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import programs.BoardGeometry;
+import programs.GeneratePresetImpl;
+
+import java.util.*;
+
+/**
+ * Типовые расстановки для бенчмарков. Армия компьютера стоит в колонках 0-2
+ * (как её расставляет {@link GeneratePresetImpl}), армия игрока - зеркально в колонках 24-26.
+ */
+public enum BoardFixture {
+
+    // По одному юниту с каждой стороны: поле пустое
+    EMPTY,
+
+    // 22 на 22: каждый второй юнит полного состава
+    HALF,
+
+    // Полный состав 44 на 44 (бюджет 1500, по 11 юнитов каждого типа)
+    PACKED;
+
+    static final int BUDGET = 1500;
+
+    static final int FIELD_WIDTH = BoardGeometry.DEFAULT.width();
+
+    /**
+     * Шаблоны юнитов в том виде, в каком их передаёт игра.
+     */
+    static List<Unit> templates() {
+        List<Unit> templates = new ArrayList<>();
+        templates.add(template("Archer", 30, 15, 19, "ranged"));
+        templates.add(template("Knight", 80, 25, 22, "melee"));
+        templates.add(template("Pikeman", 45, 20, 20, "melee"));
+        templates.add(template("Swordsman", 50, 18, 15, "melee"));
+        return templates;
+    }
+
+    private static Unit template(String type, int health, int attack, int cost, String attackType) {
+        return new Unit(type, type, health, attack, cost, attackType, new HashMap<>(), new HashMap<>(), 0, 0);
+    }
+
+    /**
+     * Новая пара армий [игрок, компьютер] без программ.
+     */
+    Army[] armies() {
+        if (this == EMPTY) {
+            Unit computer = template("Knight", 80, 25, 22, "melee");
+            computer.setxCoordinate(2);
+            computer.setyCoordinate(10);
+            Unit player = template("Knight", 80, 25, 22, "melee");
+            player.setxCoordinate(FIELD_WIDTH - 3);
+            player.setyCoordinate(10);
+            return new Army[]{new Army(new ArrayList<>(List.of(player))), new Army(new ArrayList<>(List.of(computer)))};
+        }
+
+        GeneratePresetImpl generator = new GeneratePresetImpl();
+        List<Unit> computerUnits = select(generator.generate(templates(), BUDGET).getUnits());
+        List<Unit> playerUnits = select(generator.generate(templates(), BUDGET).getUnits());
+        for (Unit unit : playerUnits) {
+            unit.setxCoordinate(FIELD_WIDTH - 1 - unit.getxCoordinate());
+        }
+        return new Army[]{new Army(playerUnits), new Army(computerUnits)};
+    }
+
+    private List<Unit> select(List<Unit> units) {
+        if (this == PACKED) return new ArrayList<>(units);
+        List<Unit> half = new ArrayList<>();
+        for (int i = 0; i < units.size(); i += 2) {
+            half.add(units.get(i));
+        }
+        return half;
+    }
+}
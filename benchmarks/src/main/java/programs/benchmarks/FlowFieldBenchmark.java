@@ -0,0 +1,86 @@
+package programs.benchmarks;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import programs.BoardGeometry;
+import programs.FlowField;
+import programs.OccupancyBitboard;
+import programs.SuitableForAttackUnitsFinderImpl;
+import programs.UnitTargetPathFinderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ход всей армии игрока к открытым целям компьютера: одно поле потока на армию
+ * против отдельного A* для каждого юнита.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlowFieldBenchmark {
+
+    @Param({"EMPTY", "HALF", "PACKED"})
+    public BoardFixture fixture;
+
+    private final UnitTargetPathFinderImpl finder = new UnitTargetPathFinderImpl();
+    private List<Unit> playerUnits;
+    private List<Unit> existingUnits;
+    private List<List<Unit>> rows;
+    private List<Unit> targets;
+    private OccupancyBitboard board;
+
+    @Setup
+    public void setUp() {
+        Army[] armies = fixture.armies();
+        playerUnits = armies[0].getUnits();
+        existingUnits = new ArrayList<>(playerUnits);
+        existingUnits.addAll(armies[1].getUnits());
+        board = OccupancyBitboard.fromUnits(existingUnits, BoardFixture.FIELD_WIDTH,
+                BoardGeometry.DEFAULT.height());
+
+        rows = new ArrayList<>();
+        for (int x = 0; x < 3; x++) {
+            List<Unit> row = new ArrayList<>();
+            for (Unit unit : armies[1].getUnits()) {
+                if (unit.getxCoordinate() == x) row.add(unit);
+            }
+            rows.add(row);
+        }
+        targets = new SuitableForAttackUnitsFinderImpl().getSuitableUnits(rows, true);
+    }
+
+    @Benchmark
+    public void flowField(Blackhole blackhole) {
+        FlowField field = FlowField.towardSuitable(rows, true, board);
+        for (Unit unit : playerUnits) {
+            blackhole.consume(field.nextCell(unit.getxCoordinate(), unit.getyCoordinate()));
+        }
+    }
+
+    // Каждый юнит ищет путь к ближайшей по Чебышеву открытой цели
+    @Benchmark
+    public void pathPerUnit(Blackhole blackhole) {
+        for (Unit unit : playerUnits) {
+            Unit nearest = null;
+            int best = Integer.MAX_VALUE;
+            for (Unit target : targets) {
+                int distance = Math.max(Math.abs(unit.getxCoordinate() - target.getxCoordinate()),
+                        Math.abs(unit.getyCoordinate() - target.getyCoordinate()));
+                if (distance < best) {
+                    best = distance;
+                    nearest = target;
+                }
+            }
+            List<Edge> path = finder.getTargetPath(unit, nearest, existingUnits);
+            blackhole.consume(path);
+        }
+    }
+}
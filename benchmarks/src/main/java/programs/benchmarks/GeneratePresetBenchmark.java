@@ -0,0 +1,46 @@
+package programs.benchmarks;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.openjdk.jmh.annotations.*;
+import programs.GeneratePresetImpl;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация армии компьютера: повторный вызов (попадание в кэш составов)
+ * и вызов с каждый раз новым бюджетом (полный подбор рюкзаком).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratePresetBenchmark {
+
+    // Больше, чем вмещает кэш составов, чтобы каждый вызов был промахом
+    private static final int DISTINCT_BUDGETS = 64;
+
+    private List<Unit> templates;
+    private GeneratePresetImpl generator;
+    private int budgetOffset;
+
+    @Setup
+    public void setUp() {
+        templates = BoardFixture.templates();
+        generator = new GeneratePresetImpl();
+    }
+
+    @Benchmark
+    public Army generateCached() {
+        return generator.generate(templates, BoardFixture.BUDGET);
+    }
+
+    @Benchmark
+    public Army generateUncached() {
+        budgetOffset = (budgetOffset + 1) % DISTINCT_BUDGETS;
+        return generator.generate(templates, BoardFixture.BUDGET - budgetOffset);
+    }
+}
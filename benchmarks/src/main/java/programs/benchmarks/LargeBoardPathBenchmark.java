@@ -0,0 +1,80 @@
+package programs.benchmarks;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+import org.openjdk.jmh.annotations.*;
+import programs.BoardGeometry;
+import programs.HierarchicalPathFinder;
+import programs.UnitTargetPathFinderImpl;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Масштабирование поиска пути: квадратное поле side × side, 20% клеток заняты случайными
+ * юнитами, путь из левого верхнего угла в правый нижний. HIERARCHICAL - {@link HierarchicalPathFinder}:
+ * доска между вызовами не меняется, граф кластеров строится один раз на прогреве.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LargeBoardPathBenchmark {
+
+    private static final double OBSTACLE_DENSITY = 0.2;
+
+    @Param({"27", "128", "512"})
+    public int side;
+
+    @Param({"A_STAR", "JUMP_POINT", "BIDIRECTIONAL", "HIERARCHICAL"})
+    public String engine;
+
+    private UnitTargetPathFinder finder;
+    private Unit attacker;
+    private Unit target;
+    private List<Unit> existingUnits;
+
+    @Setup
+    public void setUp() {
+        BoardGeometry geometry = BoardGeometry.DEFAULT.withSize(side, side);
+        if ("HIERARCHICAL".equals(engine)) {
+            HierarchicalPathFinder hierarchical = new HierarchicalPathFinder();
+            hierarchical.setGeometry(geometry);
+            finder = hierarchical;
+        } else {
+            UnitTargetPathFinderImpl flat = new UnitTargetPathFinderImpl();
+            flat.setGeometry(geometry);
+            flat.setSearchEngine(UnitTargetPathFinderImpl.SearchEngine.valueOf(engine));
+            finder = flat;
+        }
+
+        attacker = unit("Attacker", 0, 0);
+        target = unit("Target", side - 1, side - 1);
+        existingUnits = new ArrayList<>();
+        existingUnits.add(attacker);
+        existingUnits.add(target);
+
+        Random random = new Random(42);
+        for (int x = 0; x < side; x++) {
+            for (int y = 0; y < side; y++) {
+                // Окрестности старта и цели свободны, чтобы путь почти всегда существовал
+                boolean corner = (x < 2 && y < 2) || (x >= side - 2 && y >= side - 2);
+                if (!corner && random.nextDouble() < OBSTACLE_DENSITY) {
+                    existingUnits.add(unit("Obstacle", x, y));
+                }
+            }
+        }
+    }
+
+    private static Unit unit(String name, int x, int y) {
+        return new Unit(name, "Knight", 80, 25, 22, "melee", new HashMap<>(), new HashMap<>(), x, y);
+    }
+
+    @Benchmark
+    public List<Edge> getTargetPath() {
+        return finder.getTargetPath(attacker, target, existingUnits);
+    }
+}
@@ -0,0 +1,108 @@
+package programs.benchmarks;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.util.GameSpeedUtil;
+import org.openjdk.jmh.annotations.*;
+import programs.ArmyCopier;
+import programs.BattleResult;
+import programs.HeadlessBattleRunner;
+import programs.PackedBattleSimulator;
+import programs.PackedBattleState;
+import programs.SimulateBattleImpl;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный бой: безголовый прогон, SimulateBattleImpl без пауз с выводом в никуда
+ * и бой на упакованном состоянии. Каждый вызов получает свежую копию армий (бой их изменяет).
+ * simulateSeeded - детерминированный режим SimulateBattleImpl: хеш боя печатается в начале
+ * прогона и сверяется на каждом вызове, так что замер после оптимизации заодно проверяет,
+ * что исходы боёв не изменились (хеши разных версий можно сравнить по выводу).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulateBattleBenchmark {
+
+    private static final long SEED = 20241013L;
+
+    @Param({"EMPTY", "HALF", "PACKED"})
+    public BoardFixture fixture;
+
+    private final ArmyCopier copier = new ArmyCopier();
+    private final HeadlessBattleRunner runner = new HeadlessBattleRunner();
+    private final PackedBattleSimulator packedSimulator = new PackedBattleSimulator();
+    private SimulateBattleImpl simulator;
+    private SimulateBattleImpl seededSimulator;
+    private long expectedHash;
+    private Army[] source;
+    private Army[] battle;
+    private PackedBattleState sourceState;
+    private PackedBattleState packedBattle;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws InterruptedException {
+        source = fixture.armies();
+        sourceState = PackedBattleState.of(source[0], source[1]);
+        simulator = new SimulateBattleImpl();
+        simulator.setGameSpeedUtil(new GameSpeedUtil(0));
+        seededSimulator = new SimulateBattleImpl();
+        seededSimulator.setGameSpeedUtil(new GameSpeedUtil(0));
+        seededSimulator.setPrintBattleLog((attacker, target) -> {
+        });
+        seededSimulator.setSeed(SEED);
+
+        // Консольный вывод SimulateBattleImpl не должен попадать в измерение
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        Army[] reference = copier.copyBattle(source[0], source[1]);
+        seededSimulator.simulate(reference[0], reference[1]);
+        expectedHash = seededSimulator.getLastBattleHash();
+        originalOut.printf("Хеш боя %s (зерно %d): %016x%n", fixture, SEED, expectedHash);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        System.setOut(originalOut);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        battle = copier.copyBattle(source[0], source[1]);
+        packedBattle = sourceState.copy();
+    }
+
+    @Benchmark
+    public BattleResult headless() throws InterruptedException {
+        return runner.run(battle[0], battle[1]);
+    }
+
+    @Benchmark
+    public Army simulateSilent() throws InterruptedException {
+        simulator.simulate(battle[0], battle[1]);
+        return battle[0];
+    }
+
+    @Benchmark
+    public long simulateSeeded() throws InterruptedException {
+        seededSimulator.simulate(battle[0], battle[1]);
+        long hash = seededSimulator.getLastBattleHash();
+        if (hash != expectedHash) {
+            throw new IllegalStateException(String.format("Исход детерминированного боя изменился: %016x вместо %016x",
+                    hash, expectedHash));
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public BattleResult packed() throws InterruptedException {
+        return packedSimulator.run(packedBattle);
+    }
+}
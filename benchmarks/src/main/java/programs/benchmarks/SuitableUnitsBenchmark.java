@@ -0,0 +1,53 @@
+package programs.benchmarks;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import org.openjdk.jmh.annotations.*;
+import programs.SuitableForAttackUnitsFinderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск доступных целей в трёх рядах армии компьютера (так вызывают программы игрока).
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SuitableUnitsBenchmark {
+
+    @Param({"EMPTY", "HALF", "PACKED"})
+    public BoardFixture fixture;
+
+    private final SuitableForAttackUnitsFinderImpl finder = new SuitableForAttackUnitsFinderImpl();
+    private final List<Unit> reused = new ArrayList<>();
+    private List<List<Unit>> rows;
+
+    @Setup
+    public void setUp() {
+        Army computer = fixture.armies()[1];
+        rows = new ArrayList<>();
+        for (int x = 0; x < 3; x++) {
+            List<Unit> row = new ArrayList<>();
+            for (Unit unit : computer.getUnits()) {
+                if (unit.getxCoordinate() == x) row.add(unit);
+            }
+            rows.add(row);
+        }
+    }
+
+    @Benchmark
+    public List<Unit> getSuitableUnits() {
+        return finder.getSuitableUnits(rows, true);
+    }
+
+    @Benchmark
+    public List<Unit> getSuitableUnitsReused() {
+        reused.clear();
+        return finder.getSuitableUnits(rows, true, reused);
+    }
+}
@@ -0,0 +1,65 @@
+package programs.benchmarks;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import org.openjdk.jmh.annotations.*;
+import programs.UnitTargetPathFinderImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Путь от передового юнита игрока к передовому юниту компьютера через всё поле.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TargetPathBenchmark {
+
+    @Param({"EMPTY", "HALF", "PACKED"})
+    public BoardFixture fixture;
+
+    @Param({"A_STAR", "JUMP_POINT", "BIDIRECTIONAL"})
+    public UnitTargetPathFinderImpl.SearchEngine engine;
+
+    private final UnitTargetPathFinderImpl finder = new UnitTargetPathFinderImpl();
+    private Unit attacker;
+    private Unit target;
+    private List<Unit> existingUnits;
+
+    @Setup
+    public void setUp() {
+        Army[] armies = fixture.armies();
+        finder.setSearchEngine(engine);
+        attacker = frontUnit(armies[0].getUnits(), false);
+        target = frontUnit(armies[1].getUnits(), true);
+        existingUnits = new ArrayList<>(armies[0].getUnits());
+        existingUnits.addAll(armies[1].getUnits());
+    }
+
+    // Юнит ближайшей к центру колонки, а в ней - ближайший к середине по Y
+    private static Unit frontUnit(List<Unit> units, boolean maxX) {
+        Unit best = null;
+        for (Unit unit : units) {
+            if (best == null || compare(unit, best, maxX) < 0) best = unit;
+        }
+        return best;
+    }
+
+    private static int compare(Unit a, Unit b, boolean maxX) {
+        int byX = maxX ? Integer.compare(b.getxCoordinate(), a.getxCoordinate())
+                : Integer.compare(a.getxCoordinate(), b.getxCoordinate());
+        if (byX != 0) return byX;
+        return Integer.compare(Math.abs(a.getyCoordinate() - 10), Math.abs(b.getyCoordinate() - 10));
+    }
+
+    @Benchmark
+    public List<Edge> getTargetPath() {
+        return finder.getTargetPath(attacker, target, existingUnits);
+    }
+}
@@ -0,0 +1,162 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Program;
+import com.battle.heroes.army.programs.SuitableForAttackUnitsFinder;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+import com.battle.heroes.army.programs.computer.ComputerArcherProgram;
+import com.battle.heroes.army.programs.computer.ComputerKnightProgram;
+import com.battle.heroes.army.programs.computer.ComputerPikemanProgram;
+import com.battle.heroes.army.programs.computer.ComputerSwordsmanProgram;
+import com.battle.heroes.army.programs.user.UserArcherProgram;
+import com.battle.heroes.army.programs.user.UserKnightProgram;
+import com.battle.heroes.army.programs.user.UserPikemanProgram;
+import com.battle.heroes.army.programs.user.UserSwordsmanProgram;
+import com.battle.heroes.util.GameSpeedUtil;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+
+/**
+ * Глубокое копирование пары армий для независимых симуляций.
+ * Юниты копируются по значению (здоровье, координаты, признак жизни), а программы
+ * создаются заново и привязываются к новым армиям: программа держит ссылки на свою
+ * и вражескую армию, поэтому переиспользовать исходную нельзя.
+ * Класс программы берётся у исходного юнита, а если программы нет (армия из
+ * GeneratePresetImpl.generate) - выбирается по типу юнита и стороне.
+ * Алгоритмическая сложность: O(n), где n - общее число юнитов
+ */
+public final class ArmyCopier {
+
+    private static final Class<?>[] MELEE_SIGNATURE = {
+            Unit.class, Army.class, Army.class, GameSpeedUtil.class,
+            SuitableForAttackUnitsFinder.class, UnitTargetPathFinder.class
+    };
+    private static final Class<?>[] RANGED_SIGNATURE = {
+            Unit.class, Army.class, Army.class, GameSpeedUtil.class
+    };
+
+    // Программы по умолчанию для армий без программ (ключ - тип юнита)
+    private static final Map<String, Class<? extends Program>> COMPUTER_PROGRAMS = Map.of(
+            "Archer", ComputerArcherProgram.class,
+            "Knight", ComputerKnightProgram.class,
+            "Pikeman", ComputerPikemanProgram.class,
+            "Swordsman", ComputerSwordsmanProgram.class);
+    private static final Map<String, Class<? extends Program>> PLAYER_PROGRAMS = Map.of(
+            "Archer", UserArcherProgram.class,
+            "Knight", UserKnightProgram.class,
+            "Pikeman", UserPikemanProgram.class,
+            "Swordsman", UserSwordsmanProgram.class);
+
+    // Найденные конструкторы программ: рефлексивный поиск выполняется один раз на класс
+    private static final ClassValue<Constructor<?>> CONSTRUCTORS = new ClassValue<>() {
+        @Override
+        protected Constructor<?> computeValue(Class<?> type) {
+            try {
+                return type.getConstructor(MELEE_SIGNATURE);
+            } catch (NoSuchMethodException e) {
+                try {
+                    return type.getConstructor(RANGED_SIGNATURE);
+                } catch (NoSuchMethodException ignored) {
+                    throw new IllegalArgumentException("Неизвестная сигнатура конструктора программы: " + type.getName());
+                }
+            }
+        }
+    };
+
+    private final GameSpeedUtil gameSpeedUtil;
+    private final SuitableForAttackUnitsFinder suitableForAttackUnitsFinder;
+    private final UnitTargetPathFinder unitTargetPathFinder;
+
+    /**
+     * Копировщик для безголовых симуляций: программы без пауз и с реализациями из этого пакета.
+     */
+    public ArmyCopier() {
+        this(new GameSpeedUtil(0), new SuitableForAttackUnitsFinderImpl(), new UnitTargetPathFinderImpl());
+    }
+
+    public ArmyCopier(GameSpeedUtil gameSpeedUtil,
+                      SuitableForAttackUnitsFinder suitableForAttackUnitsFinder,
+                      UnitTargetPathFinder unitTargetPathFinder) {
+        this.gameSpeedUtil = gameSpeedUtil;
+        this.suitableForAttackUnitsFinder = suitableForAttackUnitsFinder;
+        this.unitTargetPathFinder = unitTargetPathFinder;
+    }
+
+    /**
+     * Копирует армии игрока и компьютера: результат [игрок, компьютер].
+     */
+    public Army[] copyBattle(Army playerArmy, Army computerArmy) {
+        List<Unit> playerUnits = copyUnits(playerArmy.getUnits());
+        List<Unit> computerUnits = copyUnits(computerArmy.getUnits());
+
+        Army playerCopy = new Army(playerUnits);
+        playerCopy.setPoints(playerArmy.getPoints());
+        Army computerCopy = new Army(computerUnits);
+        computerCopy.setPoints(computerArmy.getPoints());
+
+        bindPrograms(playerArmy.getUnits(), playerUnits, playerCopy, computerCopy, PLAYER_PROGRAMS);
+        bindPrograms(computerArmy.getUnits(), computerUnits, computerCopy, playerCopy, COMPUTER_PROGRAMS);
+
+        return new Army[]{playerCopy, computerCopy};
+    }
+
+    /**
+     * Копия юнита без программы. Карты бонусов не изменяются в бою и разделяются с оригиналом.
+     */
+    public static Unit copyUnit(Unit source) {
+        Unit copy = new Unit(
+                source.getName(),
+                source.getUnitType(),
+                source.getHealth(),
+                source.getBaseAttack(),
+                source.getCost(),
+                source.getAttackType(),
+                source.getAttackBonuses(),
+                source.getDefenceBonuses(),
+                source.getxCoordinate(),
+                source.getyCoordinate()
+        );
+        copy.setAlive(source.isAlive());
+        return copy;
+    }
+
+    private static List<Unit> copyUnits(List<Unit> units) {
+        List<Unit> copies = new ArrayList<>(units.size());
+        for (Unit unit : units) {
+            copies.add(unit != null ? copyUnit(unit) : null);
+        }
+        return copies;
+    }
+
+    private void bindPrograms(List<Unit> sources, List<Unit> copies, Army ally, Army enemy,
+                              Map<String, Class<? extends Program>> defaults) {
+        for (int i = 0; i < sources.size(); i++) {
+            Unit source = sources.get(i);
+            Unit copy = copies.get(i);
+            if (source == null) continue;
+
+            Class<?> programType = source.getProgram() != null
+                    ? source.getProgram().getClass()
+                    : defaults.get(source.getUnitType());
+            if (programType != null) {
+                copy.setProgram(createProgram(programType, copy, ally, enemy));
+            }
+        }
+    }
+
+    private Program createProgram(Class<?> programType, Unit unit, Army ally, Army enemy) {
+        Constructor<?> constructor = CONSTRUCTORS.get(programType);
+        try {
+            Object program = constructor.getParameterCount() == MELEE_SIGNATURE.length
+                    ? constructor.newInstance(unit, ally, enemy, gameSpeedUtil,
+                    suitableForAttackUnitsFinder, unitTargetPathFinder)
+                    : constructor.newInstance(unit, ally, enemy, gameSpeedUtil);
+            return (Program) program;
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Не удалось создать программу " + programType.getName(), e);
+        }
+    }
+}
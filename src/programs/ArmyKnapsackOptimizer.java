@@ -0,0 +1,102 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.util.*;
+
+/**
+ * Точный подбор состава армии: ограниченный рюкзак (не более maxPerType юнитов каждого типа,
+ * суммарная стоимость ≤ maxPoints) динамическим программированием по очкам × типам.
+ * Максимизируется {@link ArmyObjective}; при равной ценности выбирается состав с большим
+ * суммарным здоровьем (тот же приоритет "атака → здоровье", что был у жадного алгоритма).
+ * Алгоритмическая сложность: O(n × P × m), где n - число типов, P - бюджет, m - лимит на тип
+ * Для 4 типов, 1500 очков и 11 юнитов: ~72 000 операций.
+ */
+public final class ArmyKnapsackOptimizer {
+
+    private final int maxPerType;
+
+    public ArmyKnapsackOptimizer(int maxPerType) {
+        if (maxPerType < 0 || maxPerType > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Лимит юнитов одного типа должен быть от 0 до " + Byte.MAX_VALUE);
+        }
+        this.maxPerType = maxPerType;
+    }
+
+    /**
+     * Возвращает количество юнитов каждого шаблона (в порядке templates).
+     * Шаблоны с неположительной стоимостью и повторяющимся типом не покупаются.
+     */
+    public int[] optimize(List<Unit> templates, int maxPoints, ArmyObjective objective) {
+        int n = templates.size();
+        int[] counts = new int[n];
+        if (n == 0 || maxPoints <= 0) return counts;
+
+        // Стоимость, ценность и здоровье каждого допустимого шаблона
+        int[] costs = new int[n];
+        double[] values = new double[n];
+        int[] healths = new int[n];
+        boolean[] allowed = new boolean[n];
+        Set<String> seenTypes = new HashSet<>();
+        for (int i = 0; i < n; i++) {
+            Unit template = templates.get(i);
+            allowed[i] = template != null && template.getCost() > 0 && seenTypes.add(template.getUnitType());
+            if (!allowed[i]) continue;
+            costs[i] = template.getCost();
+            values[i] = objective.unitValue(template);
+            healths[i] = template.getHealth();
+        }
+
+        // best[p] - лучшая ценность при стоимости ≤ p по уже рассмотренным типам
+        double[] bestValue = new double[maxPoints + 1];
+        long[] bestHealth = new long[maxPoints + 1];
+        double[] nextValue = new double[maxPoints + 1];
+        long[] nextHealth = new long[maxPoints + 1];
+        // Выбранное количество юнитов типа i при бюджете p
+        byte[][] choice = new byte[n][maxPoints + 1];
+
+        for (int i = 0; i < n; i++) {
+            if (!allowed[i]) {
+                continue;
+            }
+
+            for (int p = 0; p <= maxPoints; p++) {
+                int limit = Math.min(maxPerType, p / costs[i]);
+                double value = bestValue[p];
+                long health = bestHealth[p];
+                int chosen = 0;
+
+                for (int k = 1; k <= limit; k++) {
+                    int rest = p - k * costs[i];
+                    double candidateValue = bestValue[rest] + k * values[i];
+                    long candidateHealth = bestHealth[rest] + (long) k * healths[i];
+                    if (candidateValue > value || (candidateValue == value && candidateHealth > health)) {
+                        value = candidateValue;
+                        health = candidateHealth;
+                        chosen = k;
+                    }
+                }
+
+                nextValue[p] = value;
+                nextHealth[p] = health;
+                choice[i][p] = (byte) chosen;
+            }
+
+            double[] swapValue = bestValue;
+            bestValue = nextValue;
+            nextValue = swapValue;
+            long[] swapHealth = bestHealth;
+            bestHealth = nextHealth;
+            nextHealth = swapHealth;
+        }
+
+        // Восстановление состава от последнего типа к первому
+        int points = maxPoints;
+        for (int i = n - 1; i >= 0; i--) {
+            if (!allowed[i]) continue;
+            counts[i] = choice[i][points];
+            points -= counts[i] * costs[i];
+        }
+        return counts;
+    }
+}
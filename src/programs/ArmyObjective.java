@@ -0,0 +1,27 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+/**
+ * Целевая функция состава армии: ценность одного юнита данного шаблона.
+ * Ценность армии - сумма ценностей юнитов, поэтому оптимизатор может искать
+ * оптимум точным динамическим программированием.
+ */
+@FunctionalInterface
+public interface ArmyObjective {
+
+    // Суммарная атака армии
+    ArmyObjective TOTAL_ATTACK = Unit::getBaseAttack;
+
+    // Суммарное здоровье армии
+    ArmyObjective TOTAL_HEALTH = Unit::getHealth;
+
+    double unitValue(Unit template);
+
+    /**
+     * Взвешенная сумма атаки и здоровья.
+     */
+    static ArmyObjective weightedSum(double attackWeight, double healthWeight) {
+        return template -> attackWeight * template.getBaseAttack() + healthWeight * template.getHealth();
+    }
+}
@@ -0,0 +1,366 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.PrintBattleLog;
+
+import java.io.BufferedOutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Асинхронный лог боя. Поток боя только записывает компактные записи из int-полей
+ * (тип события, индексы юнитов, раунд, координаты) в кольцевой буфер без блокировок;
+ * фоновый поток забирает их пачками, передаёт атаки в PrintBattleLog игры и печатает
+ * текст {@link ConsoleBattleListener} в буферизованный поток, сбрасывая его раз на пачку.
+ * Буфер рассчитан на одного производителя (поток боя) и одного потребителя.
+ * Поведение при переполнении задаёт {@link LogBackpressure}. Событие конца боя всегда
+ * дожидается места, чтобы итоги не терялись ни при какой политике.
+ * PrintBattleLog вызывается в фоновом потоке и видит юнитов в их текущем состоянии,
+ * а не в момент атаки.
+ * Алгоритмическая сложность: O(1) на событие в потоке боя
+ */
+public final class AsyncBattleLog implements BattleListener, AutoCloseable {
+
+    // Типы записей
+    private static final int BATTLE_START = 1;
+    private static final int ROUND_START = 2;
+    private static final int ATTACK = 3;
+    private static final int NO_TARGET = 4;
+    private static final int MOVE = 5;
+    private static final int DEATH = 6;
+    private static final int INTERRUPTED = 7;
+    private static final int ATTACK_INTERRUPTED = 8;
+    private static final int ROUND_END = 9;
+    private static final int BATTLE_END = 10;
+    private static final int COALESCED = 11;
+
+    // Запись: тип + до 5 аргументов, выровнено до 8 int (степень двойки)
+    private static final int RECORD_SHIFT = 3;
+
+    // Ожидание потребителя без событий и производителя при полном буфере
+    private static final long IDLE_PARK_NANOS = 200_000;
+    private static final long FULL_PARK_NANOS = 10_000;
+    private static final int SPIN_TRIES = 100;
+
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 14;
+
+    private final LogBackpressure backpressure;
+    private final int mask;
+    private final int[] records;
+
+    // Номер следующей записи производителя и число записей, обработанных потребителем
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    // Кэш consumed у производителя: к атомарной переменной обращаемся только при "полном" буфере
+    private long consumedSnapshot;
+
+    // Таблица юнитов: индекс записи ↔ юнит (неизменна после конструктора)
+    private final Unit[] units;
+    private final Map<Unit, Integer> unitIndex;
+
+    private final PrintStream out;
+    private final ConsoleBattleListener console;
+    private final Thread consumer;
+    private volatile boolean closed;
+
+    private final AtomicLong droppedEvents = new AtomicLong();
+    // Свёрнутые события, ещё не попавшие в буфер (только поток боя)
+    private int pendingCoalesced;
+
+    /**
+     * @param capacity число записей в буфере, округляется вверх до степени двойки
+     */
+    public AsyncBattleLog(PrintBattleLog printBattleLog, LogBackpressure backpressure, int capacity,
+                          Army playerArmy, Army computerArmy) {
+        if (capacity <= 0 || capacity > (1 << 20)) {
+            throw new IllegalArgumentException("Размер буфера лога должен быть от 1 до " + (1 << 20));
+        }
+        if (playerArmy == null || computerArmy == null) {
+            throw new IllegalArgumentException("Армии не могут быть null");
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        this.mask = size - 1;
+        this.records = new int[size << RECORD_SHIFT];
+        this.backpressure = backpressure != null ? backpressure : LogBackpressure.BLOCK;
+
+        List<Unit> all = new ArrayList<>(playerArmy.getUnits());
+        all.addAll(computerArmy.getUnits());
+        this.units = all.toArray(new Unit[0]);
+        this.unitIndex = new IdentityHashMap<>(units.length * 2);
+        for (int i = 0; i < units.length; i++) {
+            if (units[i] != null) unitIndex.put(units[i], i);
+        }
+
+        // Тот же System.out, но одна запись в него на пачку событий
+        this.out = bufferedStdout();
+        this.console = new ConsoleBattleListener(printBattleLog, out);
+
+        this.consumer = new Thread(this::consume, "battle-log");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    // Кодировка та же, что у System.out: sun.stdout.encoding (консоль) или кодировка по умолчанию
+    private static PrintStream bufferedStdout() {
+        String encoding = System.getProperty("sun.stdout.encoding", Charset.defaultCharset().name());
+        BufferedOutputStream buffer = new BufferedOutputStream(System.out, OUTPUT_BUFFER_SIZE);
+        try {
+            return new PrintStream(buffer, false, encoding);
+        } catch (UnsupportedEncodingException e) {
+            return new PrintStream(buffer, false);
+        }
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    // События боя: только запись в буфер
+
+    @Override
+    public void onBattleStart() {
+        publish(BATTLE_START, true, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onRoundStart(int round, int aliveUnits) {
+        publish(ROUND_START, false, round, aliveUnits, 0, 0, 0);
+    }
+
+    @Override
+    public void onAttack(Unit attacker, Unit target) {
+        int a = indexOf(attacker);
+        int t = indexOf(target);
+        if (a < 0 || t < 0) return;
+        publish(ATTACK, false, a, t, 0, 0, 0);
+    }
+
+    @Override
+    public void onNoTarget(Unit attacker) {
+        int a = indexOf(attacker);
+        if (a < 0) return;
+        publish(NO_TARGET, false, a, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onMove(Unit unit, int fromX, int fromY, int toX, int toY) {
+        int u = indexOf(unit);
+        if (u < 0) return;
+        publish(MOVE, false, u, fromX, fromY, toX, toY);
+    }
+
+    @Override
+    public void onDeath(Unit unit) {
+        int u = indexOf(unit);
+        if (u < 0) return;
+        publish(DEATH, true, u, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onAttackError(Unit attacker, Exception e) {
+        // Редкое событие с объектом исключения: печатается сразу в System.err
+        console.onAttackError(attacker, e);
+    }
+
+    @Override
+    public void onInterrupted(int round, boolean duringTurn) {
+        publish(INTERRUPTED, true, round, duringTurn ? 1 : 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onAttackInterrupted(Unit attacker) {
+        int a = indexOf(attacker);
+        publish(ATTACK_INTERRUPTED, true, a, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onRoundEnd(int round, int playerAlive, int computerAlive) {
+        publish(ROUND_END, false, round, playerAlive, computerAlive, 0, 0);
+    }
+
+    @Override
+    public void onBattleEnd(BattleResult result) {
+        publish(BATTLE_END, true, result.getPlayerSurvivors(), result.getComputerSurvivors(),
+                result.getRounds(), result.getTurns(), result.getEndReason().ordinal());
+    }
+
+    /**
+     * Дожидается вывода всех записанных событий и останавливает фоновый поток.
+     * Флаг прерывания текущего потока сохраняется.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(consumer);
+
+        boolean interrupted = false;
+        while (consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int indexOf(Unit unit) {
+        Integer index = unit != null ? unitIndex.get(unit) : null;
+        return index != null ? index : -1;
+    }
+
+    // Производитель (поток боя)
+
+    private void publish(int type, boolean essential, int a0, int a1, int a2, int a3, int a4) {
+        if (closed) return;
+
+        boolean mustWait = type == BATTLE_END
+                || backpressure == LogBackpressure.BLOCK
+                || (backpressure == LogBackpressure.COALESCE && essential);
+
+        // Сначала - сводка о свёрнутых событиях, чтобы порядок вывода сохранялся
+        if (pendingCoalesced > 0) {
+            if (!hasSpace(2) && !(mustWait && awaitSpace(2))) {
+                pendingCoalesced++;
+                return;
+            }
+            write(COALESCED, pendingCoalesced, 0, 0, 0, 0);
+            pendingCoalesced = 0;
+        }
+
+        if (!hasSpace(1) && !(mustWait && awaitSpace(1))) {
+            if (backpressure == LogBackpressure.COALESCE) {
+                pendingCoalesced++;
+            } else {
+                droppedEvents.incrementAndGet();
+            }
+            return;
+        }
+        write(type, a0, a1, a2, a3, a4);
+    }
+
+    private boolean hasSpace(int slots) {
+        long next = published.get();
+        if (next + slots - consumedSnapshot <= mask + 1) return true;
+        consumedSnapshot = consumed.get();
+        return next + slots - consumedSnapshot <= mask + 1;
+    }
+
+    private boolean awaitSpace(int slots) {
+        int tries = 0;
+        while (!hasSpace(slots)) {
+            // Потребитель остановлен (или упал) - ждать бессмысленно
+            if (!consumer.isAlive()) return false;
+            if (tries++ < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.unpark(consumer);
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+        return true;
+    }
+
+    private void write(int type, int a0, int a1, int a2, int a3, int a4) {
+        long sequence = published.get();
+        int base = (int) (sequence & mask) << RECORD_SHIFT;
+        records[base] = type;
+        records[base + 1] = a0;
+        records[base + 2] = a1;
+        records[base + 3] = a2;
+        records[base + 4] = a3;
+        records[base + 5] = a4;
+        // Публикация: запись полей видна потребителю до нового значения счётчика
+        published.lazySet(sequence + 1);
+    }
+
+    // Потребитель (фоновый поток)
+
+    private void consume() {
+        long next = 0;
+        int idleSpins = 0;
+        while (true) {
+            long available = published.get();
+            if (available == next) {
+                if (closed && published.get() == next) break;
+                if (idleSpins++ < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            idleSpins = 0;
+
+            // Пачка: всё, что успел записать поток боя
+            for (; next < available; next++) {
+                dispatch((int) (next & mask) << RECORD_SHIFT);
+            }
+            consumed.lazySet(next);
+            out.flush();
+        }
+        out.flush();
+    }
+
+    private void dispatch(int base) {
+        int a0 = records[base + 1];
+        int a1 = records[base + 2];
+        int a2 = records[base + 3];
+        try {
+            switch (records[base]) {
+                case BATTLE_START:
+                    console.onBattleStart();
+                    break;
+                case ROUND_START:
+                    console.onRoundStart(a0, a1);
+                    break;
+                case ATTACK:
+                    console.onAttack(units[a0], units[a1]);
+                    break;
+                case NO_TARGET:
+                    console.onNoTarget(units[a0]);
+                    break;
+                case MOVE:
+                    // Перемещения консоль не печатает
+                    break;
+                case DEATH:
+                    console.onDeath(units[a0]);
+                    break;
+                case INTERRUPTED:
+                    console.onInterrupted(a0, a1 != 0);
+                    break;
+                case ATTACK_INTERRUPTED:
+                    console.onAttackInterrupted(a0 >= 0 ? units[a0] : null);
+                    break;
+                case ROUND_END:
+                    console.onRoundEnd(a0, a1, a2);
+                    break;
+                case BATTLE_END:
+                    console.onBattleEnd(new BattleResult(a0, a1, a2, records[base + 4],
+                            BattleResult.EndReason.values()[records[base + 5]]));
+                    break;
+                case COALESCED:
+                    out.println("... пропущено событий лога: " + a0);
+                    break;
+                default:
+                    break;
+            }
+        } catch (RuntimeException e) {
+            // Ошибка приёмника не должна останавливать лог
+            System.err.println("Ошибка вывода лога боя: " + e.getMessage());
+        }
+    }
+}
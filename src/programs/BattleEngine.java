@@ -0,0 +1,79 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.util.*;
+
+/**
+ * Общий цикл пошагового боя: порядок ходов, удаление павших из очереди, проверка окончания.
+ * Вывод и паузы вынесены в {@link BattleListener} и {@link BattlePacer}, поэтому один и тот же
+ * цикл используется и игрой ({@link SimulateBattleImpl}), и безголовой симуляцией
+ * ({@link HeadlessBattleRunner}).
+ * Порядок ходов ({@link TurnOrder}) сортируется один раз на бой, павшие вычёркиваются за O(1).
+ * Сами ходы выполняет {@link BattleStepper}; здесь шаги идут подряд в одном потоке с паузой
+ * после каждой атаки.
+ * Алгоритмическая сложность: O(n log n + r × n), где n - общее число юнитов, r - число раундов
+ */
+final class BattleEngine {
+
+    static final int MAX_ROUNDS = 200; // Уменьшено для безопасности, но достаточно для любых армий
+
+    private final BattleListener listener;
+    private final BattlePacer pacer;
+    // Размеры игрового поля для битовой доски занятости
+    private final BoardGeometry geometry;
+
+    BattleEngine(BattleListener listener, BattlePacer pacer) {
+        this(listener, pacer, BoardGeometry.DEFAULT);
+    }
+
+    BattleEngine(BattleListener listener, BattlePacer pacer, BoardGeometry geometry) {
+        this.listener = listener != null ? listener : BattleListener.NONE;
+        this.pacer = pacer != null ? pacer : BattlePacer.NONE;
+        this.geometry = geometry != null ? geometry : BoardGeometry.DEFAULT;
+    }
+
+    BattleResult run(Army playerArmy, Army computerArmy) throws InterruptedException {
+        return run(playerArmy, computerArmy, 1);
+    }
+
+    /**
+     * Бой с раунда firstRound: продолжение из {@link BattleSnapshot} (армии уже в состоянии
+     * после раунда firstRound - 1). Лимит раундов - общий, {@link #MAX_ROUNDS}.
+     */
+    BattleResult run(Army playerArmy, Army computerArmy, int firstRound) throws InterruptedException {
+        BattleStepper stepper = new BattleStepper(playerArmy, computerArmy, listener, geometry, firstRound);
+        while (true) {
+            BattleEvent event = stepper.step();
+            switch (event.getType()) {
+                case BATTLE_END:
+                    return event.getResult();
+                case ATTACK:
+                case NO_TARGET:
+                    // Пауза для визуализации
+                    try {
+                        pacer.pause();
+                    } catch (InterruptedException e) {
+                        // Пробрасываем прерывание дальше
+                        listener.onAttackInterrupted(event.getAttacker());
+                        throw e;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    // Вспомогательные методы
+    static int countAliveUnits(List<Unit> units) {
+        int count = 0;
+        for (Unit unit : units) {
+            if (unit != null && unit.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
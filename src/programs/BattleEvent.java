@@ -0,0 +1,95 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+/**
+ * Итог одного шага {@link BattleStepper#step()}: ход юнита, пауза или конец боя.
+ */
+public final class BattleEvent {
+
+    public enum Type {
+        // Юнит атаковал цель (цель могла погибнуть - см. target.isAlive())
+        ATTACK,
+        // Юниту некого атаковать
+        NO_TARGET,
+        // Программа юнита выбросила исключение, ход пропущен
+        ATTACK_ERROR,
+        // Бой поставлен на паузу, шаг ничего не сделал
+        PAUSED,
+        // Бой окончен, результат - getResult()
+        BATTLE_END
+    }
+
+    private final Type type;
+    private final int round;
+    private final Unit attacker;
+    private final Unit target;
+    private final Exception error;
+    private final BattleResult result;
+
+    private BattleEvent(Type type, int round, Unit attacker, Unit target, Exception error, BattleResult result) {
+        this.type = type;
+        this.round = round;
+        this.attacker = attacker;
+        this.target = target;
+        this.error = error;
+        this.result = result;
+    }
+
+    static BattleEvent attack(int round, Unit attacker, Unit target) {
+        return new BattleEvent(target != null ? Type.ATTACK : Type.NO_TARGET, round, attacker, target, null, null);
+    }
+
+    static BattleEvent attackError(int round, Unit attacker, Exception error) {
+        return new BattleEvent(Type.ATTACK_ERROR, round, attacker, null, error, null);
+    }
+
+    static BattleEvent paused(int round) {
+        return new BattleEvent(Type.PAUSED, round, null, null, null, null);
+    }
+
+    static BattleEvent battleEnd(BattleResult result) {
+        return new BattleEvent(Type.BATTLE_END, result.getRounds(), null, null, null, result);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    // null для PAUSED и BATTLE_END
+    public Unit getAttacker() {
+        return attacker;
+    }
+
+    // Только для ATTACK
+    public Unit getTarget() {
+        return target;
+    }
+
+    // Только для ATTACK_ERROR
+    public Exception getError() {
+        return error;
+    }
+
+    // Только для BATTLE_END
+    public BattleResult getResult() {
+        return result;
+    }
+
+    // Ход юнита (атака, отсутствие цели или ошибка программы)
+    public boolean isTurn() {
+        return attacker != null;
+    }
+
+    @Override
+    public String toString() {
+        return "BattleEvent{type=" + type + ", round=" + round
+                + (attacker != null ? ", attacker=" + attacker.getName() : "")
+                + (target != null ? ", target=" + target.getName() : "")
+                + (result != null ? ", result=" + result : "") + "}";
+    }
+}
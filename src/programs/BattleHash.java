@@ -0,0 +1,87 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+/**
+ * Хеш хода боя: 64-битный FNV-1a по последовательности событий (раунды, атаки с
+ * оставшимся здоровьем цели, перемещения, гибель, итог). Два боя с одинаковым хешем
+ * прошли одинаково с вероятностью, близкой к 1, поэтому регрессионный прогон может
+ * проверить, что оптимизация не изменила исходы боёв ({@link SimulateBattleImpl#setSeed(Long)}).
+ * Юнит идентифицируется именем и текущими координатами.
+ * Экземпляр предназначен для одного потока боя.
+ */
+public final class BattleHash implements BattleListener {
+
+    private static final long OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long PRIME = 0x100000001B3L;
+
+    private long hash = OFFSET_BASIS;
+
+    private void mix(int value) {
+        hash = (hash ^ value) * PRIME;
+    }
+
+    private void mix(Unit unit) {
+        if (unit == null) {
+            mix(-1);
+            return;
+        }
+        mix(unit.getName() != null ? unit.getName().hashCode() : 0);
+        mix(unit.getxCoordinate());
+        mix(unit.getyCoordinate());
+    }
+
+    @Override
+    public void onRoundStart(int round, int aliveUnits) {
+        mix(1);
+        mix(round);
+        mix(aliveUnits);
+    }
+
+    @Override
+    public void onAttack(Unit attacker, Unit target) {
+        mix(2);
+        mix(attacker);
+        mix(target);
+        mix(target != null ? target.getHealth() : 0);
+    }
+
+    @Override
+    public void onNoTarget(Unit attacker) {
+        mix(3);
+        mix(attacker);
+    }
+
+    @Override
+    public void onMove(Unit unit, int fromX, int fromY, int toX, int toY) {
+        mix(4);
+        mix(unit);
+        mix(fromX);
+        mix(fromY);
+    }
+
+    @Override
+    public void onDeath(Unit unit) {
+        mix(5);
+        mix(unit);
+    }
+
+    @Override
+    public void onBattleEnd(BattleResult result) {
+        mix(6);
+        mix(result.getPlayerSurvivors());
+        mix(result.getComputerSurvivors());
+        mix(result.getRounds());
+        mix(result.getTurns());
+        mix(result.getEndReason().ordinal());
+    }
+
+    public long getValue() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x", hash);
+    }
+}
@@ -0,0 +1,246 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Бинарный журнал боя: каждое событие - запись фиксированной длины {@link #RECORD_SIZE} байт
+ * (тип и до 5 int-аргументов), буферизованная и записываемая в файл через {@link FileChannel}.
+ * В заголовке - таблица юнитов с начальным состоянием (армия игрока, затем компьютера),
+ * события ссылаются на юнитов по индексу в ней. Атака хранит здоровье цели после удара,
+ * поэтому {@link BattleReplay} восстанавливает поле на любой момент боя по одним событиям,
+ * без программ юнитов.
+ * Формат (big-endian): магическое число, версия, число юнитов игрока и компьютера;
+ * по юниту - x, y, здоровье, атака, признак "жив", имя и тип (длина short + UTF-8,
+ * не более {@link #MAX_STRING_BYTES} байт); затем записи.
+ * Обработчики событий не выбрасывают исключений (иначе бой принял бы их за ошибку программы юнита):
+ * первая ошибка записи запоминается, дальнейшие события отбрасываются, а {@link #close()}
+ * выбрасывает её.
+ * Алгоритмическая сложность: O(1) на событие (запись в буфер, сброс в файл раз на буфер)
+ */
+public final class BattleJournal implements BattleListener, AutoCloseable {
+
+    static final int MAGIC = 0x48424A31; // "HBJ1"
+    static final int VERSION = 1;
+    // Тип и 5 аргументов по 4 байта
+    static final int RECORD_SIZE = 24;
+
+    private static final int BUFFER_SIZE = RECORD_SIZE << 10;
+    // Имя и тип юнита в заголовке обрезаются до этой длины в байтах UTF-8
+    static final int MAX_STRING_BYTES = 1024;
+
+    /**
+     * Тип записи журнала; код в файле - порядковый номер, новые типы добавляются только в конец.
+     */
+    public enum EventType {
+        // Без аргументов
+        BATTLE_START,
+        // Номер раунда, живых юнитов
+        ROUND_START,
+        // Атакующий, цель, здоровье цели после атаки
+        ATTACK,
+        // Атакующий
+        NO_TARGET,
+        // Юнит, x и y до хода, x и y после хода
+        MOVE,
+        // Павший юнит
+        DEATH,
+        // Атакующий, чья программа выбросила исключение
+        ATTACK_ERROR,
+        // Номер раунда, 1 - прерван во время хода
+        INTERRUPTED,
+        // Атакующий, прерванный во время атаки
+        ATTACK_INTERRUPTED,
+        // Номер раунда, живых у игрока, живых у компьютера
+        ROUND_END,
+        // Выжившие у игрока и компьютера, раундов, ходов, причина окончания (порядковый номер)
+        BATTLE_END
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final Map<Unit, Integer> unitIndex;
+    private long eventCount;
+    // Первая ошибка записи; после неё журнал ничего не пишет
+    private IOException error;
+
+    /**
+     * Создаёт (перезаписывает) файл журнала и записывает таблицу юнитов армий.
+     */
+    public BattleJournal(Path file, Army playerArmy, Army computerArmy) throws IOException {
+        if (file == null || playerArmy == null || computerArmy == null) {
+            throw new IllegalArgumentException("Файл журнала и армии не могут быть null");
+        }
+
+        List<Unit> all = new ArrayList<>(playerArmy.getUnits());
+        all.addAll(computerArmy.getUnits());
+        this.unitIndex = new IdentityHashMap<>(all.size() * 2);
+        for (int i = 0; i < all.size(); i++) {
+            if (all.get(i) != null) unitIndex.put(all.get(i), i);
+        }
+
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            writeHeader(all, playerArmy.getUnits().size());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void writeHeader(List<Unit> units, int playerCount) throws IOException {
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(playerCount).putInt(units.size() - playerCount);
+        for (Unit unit : units) {
+            byte[] name = bytes(unit != null ? unit.getName() : null);
+            byte[] type = bytes(unit != null ? unit.getUnitType() : null);
+            ensureSpace(5 * Integer.BYTES + 2 * Short.BYTES + name.length + type.length);
+            if (unit == null) {
+                buffer.putInt(0).putInt(0).putInt(0).putInt(0).putInt(0);
+            } else {
+                buffer.putInt(unit.getxCoordinate()).putInt(unit.getyCoordinate())
+                        .putInt(unit.getHealth()).putInt(unit.getBaseAttack()).putInt(unit.isAlive() ? 1 : 0);
+            }
+            buffer.putShort((short) name.length).put(name);
+            buffer.putShort((short) type.length).put(type);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) return new byte[0];
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= MAX_STRING_BYTES ? bytes : Arrays.copyOf(bytes, MAX_STRING_BYTES);
+    }
+
+    // Число записанных событий (без заголовка)
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    public IOException getError() {
+        return error;
+    }
+
+    // --- События боя ---
+
+    @Override
+    public void onBattleStart() {
+        record(EventType.BATTLE_START, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onRoundStart(int round, int aliveUnits) {
+        record(EventType.ROUND_START, round, aliveUnits, 0, 0, 0);
+    }
+
+    @Override
+    public void onAttack(Unit attacker, Unit target) {
+        record(EventType.ATTACK, indexOf(attacker), indexOf(target), target != null ? target.getHealth() : 0, 0, 0);
+    }
+
+    @Override
+    public void onNoTarget(Unit attacker) {
+        record(EventType.NO_TARGET, indexOf(attacker), 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onMove(Unit unit, int fromX, int fromY, int toX, int toY) {
+        record(EventType.MOVE, indexOf(unit), fromX, fromY, toX, toY);
+    }
+
+    @Override
+    public void onDeath(Unit unit) {
+        record(EventType.DEATH, indexOf(unit), 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onAttackError(Unit attacker, Exception e) {
+        record(EventType.ATTACK_ERROR, indexOf(attacker), 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onInterrupted(int round, boolean duringTurn) {
+        record(EventType.INTERRUPTED, round, duringTurn ? 1 : 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onAttackInterrupted(Unit attacker) {
+        record(EventType.ATTACK_INTERRUPTED, indexOf(attacker), 0, 0, 0, 0);
+    }
+
+    @Override
+    public void onRoundEnd(int round, int playerAlive, int computerAlive) {
+        record(EventType.ROUND_END, round, playerAlive, computerAlive, 0, 0);
+    }
+
+    @Override
+    public void onBattleEnd(BattleResult result) {
+        record(EventType.BATTLE_END, result.getPlayerSurvivors(), result.getComputerSurvivors(),
+                result.getRounds(), result.getTurns(), result.getEndReason().ordinal());
+    }
+
+    // Юнит вне таблицы (например, добавленный в армию после начала боя) - индекс -1
+    private int indexOf(Unit unit) {
+        Integer index = unit != null ? unitIndex.get(unit) : null;
+        return index != null ? index : -1;
+    }
+
+    private void record(EventType type, int a, int b, int c, int d, int e) {
+        if (error != null) return;
+        try {
+            ensureSpace(RECORD_SIZE);
+        } catch (IOException ex) {
+            error = ex;
+            return;
+        }
+        buffer.putInt(type.ordinal()).putInt(a).putInt(b).putInt(c).putInt(d).putInt(e);
+        eventCount++;
+    }
+
+    private void ensureSpace(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Записывает буфер в файл (без fsync).
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Сбрасывает буфер и закрывает файл; выбрасывает ошибку записи, если она была.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) return;
+        try {
+            if (error == null) {
+                flush();
+            }
+        } finally {
+            channel.close();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
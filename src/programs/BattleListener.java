@@ -0,0 +1,125 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+/**
+ * Получатель событий боя. Все методы по умолчанию пустые: реализация переопределяет
+ * только нужные события. Вызовы происходят синхронно в потоке боя.
+ */
+public interface BattleListener {
+
+    // Слушатель без вывода - для безголовой симуляции
+    BattleListener NONE = new BattleListener() {
+    };
+
+    /**
+     * Слушатель, передающий каждое событие сначала first, затем second (null - пропускается).
+     */
+    static BattleListener both(BattleListener first, BattleListener second) {
+        if (first == null || first == NONE) return second != null ? second : NONE;
+        if (second == null || second == NONE) return first;
+        return new BattleListener() {
+            @Override
+            public void onBattleStart() {
+                first.onBattleStart();
+                second.onBattleStart();
+            }
+
+            @Override
+            public void onRoundStart(int round, int aliveUnits) {
+                first.onRoundStart(round, aliveUnits);
+                second.onRoundStart(round, aliveUnits);
+            }
+
+            @Override
+            public void onAttack(Unit attacker, Unit target) {
+                first.onAttack(attacker, target);
+                second.onAttack(attacker, target);
+            }
+
+            @Override
+            public void onNoTarget(Unit attacker) {
+                first.onNoTarget(attacker);
+                second.onNoTarget(attacker);
+            }
+
+            @Override
+            public void onMove(Unit unit, int fromX, int fromY, int toX, int toY) {
+                first.onMove(unit, fromX, fromY, toX, toY);
+                second.onMove(unit, fromX, fromY, toX, toY);
+            }
+
+            @Override
+            public void onDeath(Unit unit) {
+                first.onDeath(unit);
+                second.onDeath(unit);
+            }
+
+            @Override
+            public void onAttackError(Unit attacker, Exception e) {
+                first.onAttackError(attacker, e);
+                second.onAttackError(attacker, e);
+            }
+
+            @Override
+            public void onInterrupted(int round, boolean duringTurn) {
+                first.onInterrupted(round, duringTurn);
+                second.onInterrupted(round, duringTurn);
+            }
+
+            @Override
+            public void onAttackInterrupted(Unit attacker) {
+                first.onAttackInterrupted(attacker);
+                second.onAttackInterrupted(attacker);
+            }
+
+            @Override
+            public void onRoundEnd(int round, int playerAlive, int computerAlive) {
+                first.onRoundEnd(round, playerAlive, computerAlive);
+                second.onRoundEnd(round, playerAlive, computerAlive);
+            }
+
+            @Override
+            public void onBattleEnd(BattleResult result) {
+                first.onBattleEnd(result);
+                second.onBattleEnd(result);
+            }
+        };
+    }
+
+    default void onBattleStart() {
+    }
+
+    default void onRoundStart(int round, int aliveUnits) {
+    }
+
+    default void onAttack(Unit attacker, Unit target) {
+    }
+
+    default void onNoTarget(Unit attacker) {
+    }
+
+    default void onMove(Unit unit, int fromX, int fromY, int toX, int toY) {
+    }
+
+    default void onDeath(Unit unit) {
+    }
+
+    default void onAttackError(Unit attacker, Exception e) {
+    }
+
+    // Поток прерван между ходами (флаг interrupted), бой завершается без исключения
+    default void onInterrupted(int round, boolean duringTurn) {
+    }
+
+    // Программа юнита выбросила InterruptedException - оно будет проброшено дальше
+    default void onAttackInterrupted(Unit attacker) {
+    }
+
+    // Конец раунда: вызывается до проверки окончания боя
+    default void onRoundEnd(int round, int playerAlive, int computerAlive) {
+    }
+
+    default void onBattleEnd(BattleResult result) {
+    }
+}
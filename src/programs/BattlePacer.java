@@ -0,0 +1,14 @@
+package programs;
+
+/**
+ * Пауза после каждой атаки (для визуализации боя).
+ */
+@FunctionalInterface
+public interface BattlePacer {
+
+    // Без пауз - для безголовой симуляции
+    BattlePacer NONE = () -> {
+    };
+
+    void pause() throws InterruptedException;
+}
@@ -0,0 +1,308 @@
+package programs;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Чтение журнала {@link BattleJournal}: таблица юнитов и события в плоском массиве int.
+ * Состояние поля на любой момент боя восстанавливается применением событий к начальному
+ * состоянию из заголовка - программы юнитов не вызываются.
+ * Неполная последняя запись (бой прерван во время записи) отбрасывается.
+ * Алгоритмическая сложность: O(U + E) на чтение файла, O(U + k) на состояние после k событий,
+ * где U - число юнитов, E - число событий
+ */
+public final class BattleReplay {
+
+    private static final int FIELDS = BattleJournal.RECORD_SIZE / Integer.BYTES;
+    private static final BattleJournal.EventType[] TYPES = BattleJournal.EventType.values();
+
+    private final int playerCount;
+    private final String[] names;
+    private final String[] types;
+    private final int[] initialX;
+    private final int[] initialY;
+    private final int[] initialHealth;
+    private final int[] attack;
+    private final boolean[] initialAlive;
+
+    // Событие i: events[i * FIELDS] - тип, далее 5 аргументов
+    private final int[] events;
+    private final int eventCount;
+
+    private BattleReplay(int playerCount, String[] names, String[] types, int[] x, int[] y, int[] health,
+                         int[] attack, boolean[] alive, int[] events, int eventCount) {
+        this.playerCount = playerCount;
+        this.names = names;
+        this.types = types;
+        this.initialX = x;
+        this.initialY = y;
+        this.initialHealth = health;
+        this.attack = attack;
+        this.initialAlive = alive;
+        this.events = events;
+        this.eventCount = eventCount;
+    }
+
+    /**
+     * Читает журнал целиком.
+     *
+     * @throws IOException файл не читается или не является журналом боя
+     */
+    public static BattleReplay read(Path file) throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Слишком большой журнал боя: " + size + " байт");
+            }
+            data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    throw new EOFException("Журнал боя изменился во время чтения: " + file);
+                }
+            }
+            data.flip();
+        }
+
+        try {
+            return parse(data);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Заголовок журнала боя обрезан: " + file, e);
+        }
+    }
+
+    private static BattleReplay parse(ByteBuffer data) throws IOException {
+        if (data.remaining() < 4 * Integer.BYTES || data.getInt() != BattleJournal.MAGIC) {
+            throw new IOException("Файл не является журналом боя");
+        }
+        int version = data.getInt();
+        if (version != BattleJournal.VERSION) {
+            throw new IOException("Неподдерживаемая версия журнала боя: " + version);
+        }
+        int playerCount = data.getInt();
+        int computerCount = data.getInt();
+        if (playerCount < 0 || computerCount < 0 || (long) playerCount + computerCount > data.remaining()) {
+            throw new IOException("Повреждённая таблица юнитов журнала боя");
+        }
+
+        int unitCount = playerCount + computerCount;
+        String[] names = new String[unitCount];
+        String[] types = new String[unitCount];
+        int[] x = new int[unitCount];
+        int[] y = new int[unitCount];
+        int[] health = new int[unitCount];
+        int[] attack = new int[unitCount];
+        boolean[] alive = new boolean[unitCount];
+        for (int i = 0; i < unitCount; i++) {
+            x[i] = data.getInt();
+            y[i] = data.getInt();
+            health[i] = data.getInt();
+            attack[i] = data.getInt();
+            alive[i] = data.getInt() != 0;
+            names[i] = string(data);
+            types[i] = string(data);
+        }
+
+        int eventCount = data.remaining() / BattleJournal.RECORD_SIZE;
+        int[] events = new int[eventCount * FIELDS];
+        data.asIntBuffer().get(events);
+        for (int i = 0; i < eventCount; i++) {
+            int type = events[i * FIELDS];
+            if (type < 0 || type >= TYPES.length) {
+                throw new IOException("Неизвестный тип события журнала боя: " + type + " (событие " + i + ")");
+            }
+        }
+        return new BattleReplay(playerCount, names, types, x, y, health, attack, alive, events, eventCount);
+    }
+
+    private static String string(ByteBuffer data) throws IOException {
+        short length = data.getShort();
+        if (length < 0) {
+            throw new IOException("Повреждённая строка в таблице юнитов журнала боя");
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // --- Таблица юнитов ---
+
+    public int getUnitCount() {
+        return names.length;
+    }
+
+    // Юниты 0..playerCount-1 - армия игрока, остальные - компьютера
+    public int getPlayerUnitCount() {
+        return playerCount;
+    }
+
+    public String getName(int unit) {
+        return names[unit];
+    }
+
+    public String getUnitType(int unit) {
+        return types[unit];
+    }
+
+    public int getBaseAttack(int unit) {
+        return attack[unit];
+    }
+
+    // --- События ---
+
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    public BattleJournal.EventType getEventType(int event) {
+        checkEvent(event);
+        return TYPES[events[event * FIELDS]];
+    }
+
+    /**
+     * Аргумент события (0-4); смысл аргументов - в описании {@link BattleJournal.EventType}.
+     */
+    public int getEventArgument(int event, int argument) {
+        checkEvent(event);
+        if (argument < 0 || argument >= FIELDS - 1) {
+            throw new IllegalArgumentException("Номер аргумента события должен быть от 0 до " + (FIELDS - 2));
+        }
+        return events[event * FIELDS + 1 + argument];
+    }
+
+    /**
+     * Номер события начала раунда round или -1, если журнал до этого раунда не дошёл. O(E).
+     */
+    public int findRoundStart(int round) {
+        int ordinal = BattleJournal.EventType.ROUND_START.ordinal();
+        for (int i = 0; i < eventCount; i++) {
+            if (events[i * FIELDS] == ordinal && events[i * FIELDS + 1] == round) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // --- Восстановление состояния ---
+
+    /**
+     * Состояние поля после первых eventCount событий (0 - начальная расстановка).
+     */
+    public State stateAfter(int eventCount) {
+        if (eventCount < 0 || eventCount > this.eventCount) {
+            throw new IllegalArgumentException("Число событий должно быть от 0 до " + this.eventCount);
+        }
+
+        State state = new State(initialX.clone(), initialY.clone(), initialHealth.clone(), initialAlive.clone());
+        for (int i = 0; i < eventCount; i++) {
+            state.apply(events, i * FIELDS);
+        }
+        return state;
+    }
+
+    /**
+     * Состояние поля в начале раунда round (до его первого хода).
+     */
+    public State stateAtRound(int round) {
+        int event = findRoundStart(round);
+        if (event < 0) {
+            throw new IllegalArgumentException("В журнале нет раунда " + round);
+        }
+        return stateAfter(event + 1);
+    }
+
+    // Итоговое состояние - после всех событий журнала
+    public State finalState() {
+        return stateAfter(eventCount);
+    }
+
+    private void checkEvent(int event) {
+        if (event < 0 || event >= eventCount) {
+            throw new IllegalArgumentException("Номер события должен быть от 0 до " + (eventCount - 1));
+        }
+    }
+
+    /**
+     * Положение, здоровье и жизнь юнитов на момент боя; индексы - как в таблице юнитов журнала.
+     */
+    public static final class State {
+        private final int[] x;
+        private final int[] y;
+        private final int[] health;
+        private final boolean[] alive;
+        private int round;
+
+        private State(int[] x, int[] y, int[] health, boolean[] alive) {
+            this.x = x;
+            this.y = y;
+            this.health = health;
+            this.alive = alive;
+        }
+
+        private void apply(int[] events, int offset) {
+            int unit = events[offset + 1];
+            switch (TYPES[events[offset]]) {
+                case ROUND_START:
+                    round = unit;
+                    break;
+                case ATTACK:
+                    int target = events[offset + 2];
+                    if (isKnown(target)) health[target] = events[offset + 3];
+                    break;
+                case MOVE:
+                    if (isKnown(unit)) {
+                        x[unit] = events[offset + 4];
+                        y[unit] = events[offset + 5];
+                    }
+                    break;
+                case DEATH:
+                    if (isKnown(unit)) alive[unit] = false;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private boolean isKnown(int unit) {
+            return unit >= 0 && unit < x.length;
+        }
+
+        // Номер текущего раунда (0 - бой ещё не начался)
+        public int getRound() {
+            return round;
+        }
+
+        public int getX(int unit) {
+            return x[unit];
+        }
+
+        public int getY(int unit) {
+            return y[unit];
+        }
+
+        public int getHealth(int unit) {
+            return health[unit];
+        }
+
+        public boolean isAlive(int unit) {
+            return alive[unit];
+        }
+
+        /**
+         * Битовая доска занятости живыми юнитами (например, для поиска пути на этот момент боя).
+         */
+        public OccupancyBitboard toBoard(int width, int height) {
+            OccupancyBitboard board = new OccupancyBitboard(width, height);
+            for (int i = 0; i < x.length; i++) {
+                if (alive[i]) board.occupy(x[i], y[i]);
+            }
+            return board;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package programs;
+
+/**
+ * Итог боя: выжившие с каждой стороны, число раундов и ходов, причина окончания.
+ */
+public final class BattleResult {
+
+    /**
+     * Причина окончания боя.
+     */
+    public enum EndReason {
+        // Одна из армий (или обе) уничтожена в ходе боя
+        ARMY_DESTROYED,
+        // Живых юнитов не было уже к началу раунда
+        NO_UNITS,
+        // Превышен лимит раундов
+        ROUND_LIMIT,
+        // Поток боя прерван
+        INTERRUPTED
+    }
+
+    private final int playerSurvivors;
+    private final int computerSurvivors;
+    private final int rounds;
+    private final int turns;
+    private final EndReason endReason;
+
+    public BattleResult(int playerSurvivors, int computerSurvivors, int rounds, int turns,
+                        EndReason endReason) {
+        this.playerSurvivors = playerSurvivors;
+        this.computerSurvivors = computerSurvivors;
+        this.rounds = rounds;
+        this.turns = turns;
+        this.endReason = endReason;
+    }
+
+    public int getPlayerSurvivors() {
+        return playerSurvivors;
+    }
+
+    public int getComputerSurvivors() {
+        return computerSurvivors;
+    }
+
+    // Номер раунда, в котором бой закончился
+    public int getRounds() {
+        return rounds;
+    }
+
+    // Число выполненных ходов (вызовов attack())
+    public int getTurns() {
+        return turns;
+    }
+
+    public EndReason getEndReason() {
+        return endReason;
+    }
+
+    public boolean isPlayerWin() {
+        return playerSurvivors > 0 && computerSurvivors == 0;
+    }
+
+    public boolean isComputerWin() {
+        return computerSurvivors > 0 && playerSurvivors == 0;
+    }
+
+    public boolean isDraw() {
+        return playerSurvivors == 0 && computerSurvivors == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "BattleResult{player=" + playerSurvivors + ", computer=" + computerSurvivors
+                + ", rounds=" + rounds + ", turns=" + turns + ", endReason=" + endReason + '}';
+    }
+}
@@ -0,0 +1,141 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.programs.SimulateBattle;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Сервер одновременных матчей: каждый бой ({@link SimulateBattle#simulate}) идёт в своей задаче,
+ * паузы между атаками остаются обычным Thread.sleep.
+ * На Java 21+ задачи запускаются на виртуальных потоках (Executors.newVirtualThreadPerTaskExecutor
+ * ищется рефлексией - проект собирается под Java 17): спящий бой не занимает поток-носитель, и
+ * тысячи матчей с паузами делят небольшой пул носителей. На Java 17 используется пул платформенных
+ * потоков: матчи сверх его размера ждут в очереди.
+ * Отмена матча - Future.cancel(true): поток боя прерывается, и бой завершается по обычной обработке
+ * прерывания в {@link BattleEngine} (между ходами - итог INTERRUPTED, во время паузы или хода -
+ * InterruptedException).
+ * Поиск пути и доска занятости привязаны к потоку, поэтому матчи не мешают друг другу.
+ */
+public final class BattleServer implements AutoCloseable {
+
+    // Платформенных потоков на ядро: бои с паузами почти всё время спят
+    private static final int PLATFORM_THREADS_PER_CORE = 16;
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final AtomicInteger activeMatches = new AtomicInteger();
+
+    /**
+     * Виртуальные потоки, если они есть, иначе пул из 16 платформенных потоков на ядро.
+     */
+    public BattleServer() {
+        this(Runtime.getRuntime().availableProcessors() * PLATFORM_THREADS_PER_CORE);
+    }
+
+    /**
+     * Виртуальные потоки, если они есть, иначе пул из platformThreads платформенных потоков.
+     */
+    public BattleServer(int platformThreads) {
+        if (platformThreads <= 0) {
+            throw new IllegalArgumentException("Размер пула потоков должен быть положительным");
+        }
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(platformThreads, new BattleThreadFactory());
+    }
+
+    /**
+     * Матчи на заданном исполнителе (например, для тестов или общего пула приложения).
+     * Сервер закрывает исполнитель в {@link #close()}.
+     */
+    public BattleServer(ExecutorService executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Исполнитель не может быть null");
+        }
+        this.executor = executor;
+        this.virtualThreads = false;
+    }
+
+    // null - виртуальных потоков нет (Java 17-20 или preview-API выключено)
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Запускает матч. Армии принадлежат матчу до его окончания; программы юнитов должны быть
+     * созданы для этих армий. Отмена - {@code cancel(true)} у возвращённого Future.
+     */
+    public Future<?> submit(SimulateBattle simulator, Army playerArmy, Army computerArmy) {
+        if (simulator == null) {
+            throw new IllegalArgumentException("Симулятор боя не может быть null");
+        }
+        if (playerArmy == null || computerArmy == null) {
+            throw new IllegalArgumentException("Армии не могут быть null");
+        }
+        return executor.submit(() -> {
+            activeMatches.incrementAndGet();
+            try {
+                simulator.simulate(playerArmy, computerArmy);
+                return null;
+            } finally {
+                activeMatches.decrementAndGet();
+            }
+        });
+    }
+
+    // Матчи, идущие прямо сейчас (без ожидающих в очереди пула)
+    public int getActiveMatches() {
+        return activeMatches.get();
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Прерывает все идущие матчи и не запускает ожидающие; новые матчи не принимаются.
+     */
+    public void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Новые матчи не принимаются; метод дожидается окончания уже запущенных.
+     * Если ждущий поток прерван, матчи прерываются, а флаг прерывания восстанавливается.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Ждём завершения матчей
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Потоки-демоны с именами battle-N: незавершённые матчи не держат JVM
+    private static final class BattleThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "battle-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
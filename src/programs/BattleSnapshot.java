@@ -0,0 +1,170 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.util.List;
+
+/**
+ * Снимок боя после завершённого раунда для анализа "что если": здоровье, координаты и признак
+ * жизни всех юнитов обеих армий в плоских массивах (индексы - армия игрока, затем компьютера,
+ * в порядке списков, включая пустые места). Остальные характеристики юнитов в бою не меняются,
+ * поэтому ветка ({@link #fork(ArmyCopier)}) копирует исходные армии и записывает в копии
+ * состояние снимка, а продолжение ({@link HeadlessBattleRunner#resume}) начинается со следующего
+ * раунда - раунды 1..k не переигрываются.
+ * Исходные армии снимок только читает (неизменные характеристики), поэтому ветки можно
+ * запускать и пока исходный бой продолжается.
+ * Для упакованного боя снимок - {@link PackedBattleState#copy()} и
+ * {@link PackedBattleSimulator#run(PackedBattleState, int, int)}.
+ * Алгоритмическая сложность: O(n) на снимок, восстановление и ветку
+ */
+public final class BattleSnapshot {
+
+    private final Army playerArmy;
+    private final Army computerArmy;
+    private final int completedRounds;
+    private final int playerCount;
+    private final int[] health;
+    private final int[] x;
+    private final int[] y;
+    private final boolean[] alive;
+
+    private BattleSnapshot(Army playerArmy, Army computerArmy, int completedRounds) {
+        this.playerArmy = playerArmy;
+        this.computerArmy = computerArmy;
+        this.completedRounds = completedRounds;
+        this.playerCount = playerArmy.getUnits().size();
+
+        int n = playerCount + computerArmy.getUnits().size();
+        this.health = new int[n];
+        this.x = new int[n];
+        this.y = new int[n];
+        this.alive = new boolean[n];
+        read(playerArmy.getUnits(), 0);
+        read(computerArmy.getUnits(), playerCount);
+    }
+
+    /**
+     * Снимок текущего состояния армий после раунда completedRounds (0 - до начала боя).
+     */
+    public static BattleSnapshot capture(Army playerArmy, Army computerArmy, int completedRounds) {
+        if (playerArmy == null || computerArmy == null) {
+            throw new IllegalArgumentException("Армии не могут быть null");
+        }
+        if (completedRounds < 0 || completedRounds > BattleEngine.MAX_ROUNDS) {
+            throw new IllegalArgumentException("Номер раунда должен быть от 0 до " + BattleEngine.MAX_ROUNDS);
+        }
+        return new BattleSnapshot(playerArmy, computerArmy, completedRounds);
+    }
+
+    private void read(List<Unit> units, int offset) {
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            if (unit == null) continue;
+            health[offset + i] = unit.getHealth();
+            x[offset + i] = unit.getxCoordinate();
+            y[offset + i] = unit.getyCoordinate();
+            alive[offset + i] = unit.isAlive();
+        }
+    }
+
+    public int getCompletedRounds() {
+        return completedRounds;
+    }
+
+    public int getUnitCount() {
+        return health.length;
+    }
+
+    public int getHealth(int unit) {
+        return health[unit];
+    }
+
+    public int getX(int unit) {
+        return x[unit];
+    }
+
+    public int getY(int unit) {
+        return y[unit];
+    }
+
+    public boolean isAlive(int unit) {
+        return alive[unit];
+    }
+
+    /**
+     * Записывает состояние снимка в юниты армий того же состава (например, копий исходных армий
+     * с другими программами).
+     */
+    public void restoreTo(Army playerArmy, Army computerArmy) {
+        if (playerArmy == null || computerArmy == null) {
+            throw new IllegalArgumentException("Армии не могут быть null");
+        }
+        if (playerArmy.getUnits().size() != playerCount
+                || computerArmy.getUnits().size() != health.length - playerCount) {
+            throw new IllegalArgumentException("Состав армий не совпадает со снимком");
+        }
+        write(playerArmy.getUnits(), 0);
+        write(computerArmy.getUnits(), playerCount);
+    }
+
+    private void write(List<Unit> units, int offset) {
+        for (int i = 0; i < units.size(); i++) {
+            Unit unit = units.get(i);
+            if (unit == null) continue;
+            unit.setHealth(health[offset + i]);
+            unit.setxCoordinate(x[offset + i]);
+            unit.setyCoordinate(y[offset + i]);
+            unit.setAlive(alive[offset + i]);
+        }
+    }
+
+    /**
+     * Новая пара армий [игрок, компьютер] в состоянии снимка: копии исходных армий
+     * с программами, привязанными к копиям.
+     */
+    public Army[] fork(ArmyCopier copier) {
+        if (copier == null) {
+            throw new IllegalArgumentException("Копировщик армий не может быть null");
+        }
+        Army[] armies = copier.copyBattle(playerArmy, computerArmy);
+        restoreTo(armies[0], armies[1]);
+        return armies;
+    }
+
+    /**
+     * Слушатель, снимающий состояние армий в конце раунда round
+     * (подключается к бою через {@link SimulateBattleImpl#setBattleListener} или
+     * {@link HeadlessBattleRunner#HeadlessBattleRunner(BattleListener)}).
+     */
+    public static final class Recorder implements BattleListener {
+        private final Army playerArmy;
+        private final Army computerArmy;
+        private final int round;
+        private volatile BattleSnapshot snapshot;
+
+        public Recorder(Army playerArmy, Army computerArmy, int round) {
+            if (playerArmy == null || computerArmy == null) {
+                throw new IllegalArgumentException("Армии не могут быть null");
+            }
+            if (round < 1 || round > BattleEngine.MAX_ROUNDS) {
+                throw new IllegalArgumentException("Номер раунда должен быть от 1 до " + BattleEngine.MAX_ROUNDS);
+            }
+            this.playerArmy = playerArmy;
+            this.computerArmy = computerArmy;
+            this.round = round;
+        }
+
+        @Override
+        public void onRoundEnd(int round, int playerAlive, int computerAlive) {
+            if (round == this.round) {
+                snapshot = capture(playerArmy, computerArmy, round);
+            }
+        }
+
+        // null - бой закончился раньше, чем был сыгран раунд
+        public BattleSnapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+}
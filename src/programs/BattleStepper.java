@@ -0,0 +1,311 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+
+import java.util.*;
+
+/**
+ * Пошаговый бой: {@link #step()} выполняет ровно один ход юнита и возвращает его событие,
+ * поэтому один поток (цикл событий) может чередовать шаги многих боёв и отрисовывать их
+ * со своей частотой кадров. Правила и события слушателя - те же, что у {@link BattleEngine},
+ * который сам построен на этом классе: начало и конец раунда, удаление павших из очереди
+ * и проверка окончания выполняются внутри шага, следующего за последним ходом раунда.
+ * Пауз между ходами нет - их делает вызывающий. Программы юнитов засыпают сами на
+ * GameSpeedUtil.getGameSpeed() миллисекунд, поэтому для неблокирующего цикла их нужно
+ * создавать с GameSpeedUtil(0).
+ * Пауза ({@link #pause()}) и остановка ({@link #stop()}) не требуют прерывания потока.
+ * Доска занятости боя привязывается к потоку только на время шага, поэтому шаги разных
+ * боёв можно чередовать в одном потоке. Экземпляр не потокобезопасен: шаги одного боя
+ * выполняются по очереди (не обязательно в одном потоке), pause/resume/stop - из любого.
+ * Алгоритмическая сложность: O(n log n) на создание, O(A + n / 64) на шаг, где A - стоимость
+ * хода программы юнита, O(n) на шаг с переходом раунда
+ */
+public final class BattleStepper {
+
+    private enum Phase { NOT_STARTED, ROUND_START, TURNS, FINISHED }
+
+    private final Army playerArmy;
+    private final Army computerArmy;
+    private final BattleListener listener;
+    private final OccupancyBitboard board;
+    private final TurnOrder turnOrder;
+
+    private Phase phase = Phase.NOT_STARTED;
+    private int round;
+    private int turns;
+    // Позиция следующего кандидата на ход в текущем раунде (-1 - ходы раунда закончились)
+    private int position = -1;
+    private BattleEvent endEvent;
+    private volatile boolean paused;
+    private volatile boolean stopRequested;
+
+    public BattleStepper(Army playerArmy, Army computerArmy) {
+        this(playerArmy, computerArmy, BattleListener.NONE, BoardGeometry.DEFAULT);
+    }
+
+    public BattleStepper(Army playerArmy, Army computerArmy, BattleListener listener, BoardGeometry geometry) {
+        this(playerArmy, computerArmy, listener, geometry, 1);
+    }
+
+    /**
+     * Бой с раунда firstRound: продолжение из {@link BattleSnapshot} (армии уже в состоянии
+     * после раунда firstRound - 1). Лимит раундов - общий, {@link BattleEngine#MAX_ROUNDS}.
+     */
+    BattleStepper(Army playerArmy, Army computerArmy, BattleListener listener, BoardGeometry geometry,
+                  int firstRound) {
+        // Проверка входных данных
+        if (playerArmy == null || computerArmy == null) {
+            throw new IllegalArgumentException("Армии не могут быть null");
+        }
+        if (firstRound < 1) {
+            throw new IllegalArgumentException("Номер первого раунда должен быть положительным");
+        }
+        if (geometry == null) {
+            geometry = BoardGeometry.DEFAULT;
+        }
+        this.playerArmy = playerArmy;
+        this.computerArmy = computerArmy;
+        this.listener = listener != null ? listener : BattleListener.NONE;
+        this.round = firstRound;
+
+        // Объединяем все юниты для удобства обработки
+        List<Unit> allUnits = new ArrayList<>();
+        allUnits.addAll(playerArmy.getUnits());
+        allUnits.addAll(computerArmy.getUnits());
+
+        // Битовая доска занятости поля: обновляется по событиям боя и читается поиском пути
+        // в потоке шага вместо перестроения карты препятствий на каждый запрос
+        this.board = OccupancyBitboard.fromUnits(allUnits, geometry.width(), geometry.height());
+
+        // Порядок ходов строится один раз: атака юнита в бою не меняется
+        this.turnOrder = new TurnOrder(allUnits);
+    }
+
+    /**
+     * Выполняет следующий ход юнита. Если бой на паузе - возвращает PAUSED, ничего не меняя;
+     * после окончания боя каждый вызов возвращает то же событие BATTLE_END.
+     *
+     * @throws InterruptedException программа юнита была прервана; ход считается сыгранным
+     *                              (павшие и перемещение атакующего учтены, слушатель получил
+     *                              их события), и бой можно продолжить следующим шагом
+     */
+    public BattleEvent step() throws InterruptedException {
+        if (endEvent != null) {
+            return endEvent;
+        }
+        if (paused && !stopRequested) {
+            return BattleEvent.paused(round);
+        }
+
+        OccupancyBitboard previousBoard = OccupancyBitboard.bind(board);
+        try {
+            return advance();
+        } finally {
+            OccupancyBitboard.bind(previousBoard);
+        }
+    }
+
+    private BattleEvent advance() throws InterruptedException {
+        while (true) {
+            switch (phase) {
+                case NOT_STARTED:
+                    listener.onBattleStart();
+                    phase = Phase.ROUND_START;
+                    break;
+
+                case ROUND_START:
+                    if (round > BattleEngine.MAX_ROUNDS) {
+                        // Достигли максимального количества раундов
+                        return finish(BattleEngine.MAX_ROUNDS, BattleResult.EndReason.ROUND_LIMIT);
+                    }
+                    // Проверка прерывания потока или остановки
+                    if (isStopRequested()) {
+                        listener.onInterrupted(round, false);
+                        return finish(round, BattleResult.EndReason.INTERRUPTED);
+                    }
+
+                    // 1. Живые юниты в начале раунда (павшие вычеркнуты, сортировка не нужна)
+                    turnOrder.removeDead();
+
+                    // Проверяем условия окончания боя
+                    if (turnOrder.aliveCount() == 0) {
+                        return finish(round, BattleResult.EndReason.NO_UNITS);
+                    }
+                    if (!hasAliveUnits(playerArmy.getUnits()) || !hasAliveUnits(computerArmy.getUnits())) {
+                        // Одна из армий уничтожена
+                        return finish(round, BattleResult.EndReason.ARMY_DESTROYED);
+                    }
+
+                    listener.onRoundStart(round, turnOrder.aliveCount());
+                    position = turnOrder.nextAlive(0);
+                    phase = Phase.TURNS;
+                    break;
+
+                case TURNS:
+                    if (position < 0) {
+                        // 5. Проверка окончания боя после раунда
+                        int playerAlive = BattleEngine.countAliveUnits(playerArmy.getUnits());
+                        int computerAlive = BattleEngine.countAliveUnits(computerArmy.getUnits());
+                        listener.onRoundEnd(round, playerAlive, computerAlive);
+                        if (playerAlive == 0 || computerAlive == 0) {
+                            return finish(round, BattleResult.EndReason.ARMY_DESTROYED);
+                        }
+                        round++;
+                        phase = Phase.ROUND_START;
+                        break;
+                    }
+                    // Проверка прерывания потока или остановки
+                    if (isStopRequested()) {
+                        listener.onInterrupted(round, true);
+                        return finish(round, BattleResult.EndReason.INTERRUPTED);
+                    }
+
+                    // 2-4. Каждый живой юнит ходит в порядке убывания атаки
+                    int current = position;
+                    Unit attacker = turnOrder.unitAt(current);
+                    if (!attacker.isAlive()) {
+                        // Юнит умер до своего хода (в этом же раунде)
+                        position = turnOrder.nextAlive(current + 1);
+                        break;
+                    }
+                    try {
+                        return turn(attacker);
+                    } finally {
+                        // Следующий живой ищется после хода: павшие в нём уже вычеркнуты
+                        position = turnOrder.nextAlive(current + 1);
+                    }
+
+                default:
+                    return endEvent;
+            }
+        }
+    }
+
+    private BattleEvent turn(Unit attacker) throws InterruptedException {
+        int attackerX = attacker.getxCoordinate();
+        int attackerY = attacker.getyCoordinate();
+        BattleEvent event;
+        try {
+            Unit target = attacker.getProgram().attack();
+            turns++;
+
+            // Логирование атаки (ТРЕБОВАНИЕ ЗАДАНИЯ)
+            if (target != null) {
+                listener.onAttack(attacker, target);
+
+                // Проверяем, умерла ли цель
+                if (!target.isAlive()) {
+                    removeFallen(target);
+                }
+            } else {
+                listener.onNoTarget(attacker);
+            }
+            event = BattleEvent.attack(round, attacker, target);
+
+        } catch (InterruptedException e) {
+            // Программа прервана посреди хода (например, во сне после удара): ход засчитывается,
+            // павшие и новая клетка атакующего отражаются на доске, чтобы бой можно было продолжить.
+            // Цель программа не вернула, поэтому павшие ищутся по очереди ходов за O(n)
+            turns++;
+            for (int i = turnOrder.nextAlive(0); i >= 0; i = turnOrder.nextAlive(i + 1)) {
+                Unit unit = turnOrder.unitAt(i);
+                if (!unit.isAlive()) removeFallen(unit);
+            }
+            moved(attacker, attackerX, attackerY);
+
+            // Пробрасываем прерывание дальше
+            listener.onAttackInterrupted(attacker);
+            throw e;
+        } catch (Exception e) {
+            listener.onAttackError(attacker, e);
+            event = BattleEvent.attackError(round, attacker, e);
+        }
+
+        moved(attacker, attackerX, attackerY);
+        return event;
+    }
+
+    private void removeFallen(Unit unit) {
+        board.vacate(unit.getxCoordinate(), unit.getyCoordinate());
+        listener.onDeath(unit);
+
+        // УДАЛЕНИЕ ПАВШЕГО ЮНИТА ИЗ ОЧЕРЕДИ ХОДОВ (ТРЕБОВАНИЕ ЗАДАНИЯ) за O(1)
+        turnOrder.remove(unit);
+    }
+
+    // Атакующий мог сменить клетку за ход - обновляем доску за O(1)
+    private void moved(Unit attacker, int fromX, int fromY) {
+        int toX = attacker.getxCoordinate();
+        int toY = attacker.getyCoordinate();
+        if (toX != fromX || toY != fromY) {
+            board.move(fromX, fromY, toX, toY);
+            listener.onMove(attacker, fromX, fromY, toX, toY);
+        }
+    }
+
+    private boolean isStopRequested() {
+        return stopRequested || Thread.currentThread().isInterrupted();
+    }
+
+    private BattleEvent finish(int round, BattleResult.EndReason endReason) {
+        BattleResult result = new BattleResult(
+                BattleEngine.countAliveUnits(playerArmy.getUnits()),
+                BattleEngine.countAliveUnits(computerArmy.getUnits()),
+                round, turns, endReason);
+        phase = Phase.FINISHED;
+        endEvent = BattleEvent.battleEnd(result);
+        listener.onBattleEnd(result);
+        return endEvent;
+    }
+
+    // Шаги возвращают PAUSED, пока бой не будет продолжен
+    public void pause() {
+        paused = true;
+    }
+
+    public void resume() {
+        paused = false;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Следующий шаг (даже на паузе) завершит бой с итогом INTERRUPTED - как прерывание потока,
+     * но без него.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public boolean isFinished() {
+        return endEvent != null;
+    }
+
+    // null, пока бой не окончен
+    public BattleResult getResult() {
+        return endEvent != null ? endEvent.getResult() : null;
+    }
+
+    // Текущий раунд (после окончания - раунд итога)
+    public int getRound() {
+        return endEvent != null ? endEvent.getRound() : round;
+    }
+
+    // Сыгранные ходы
+    public int getTurns() {
+        return turns;
+    }
+
+    // Вспомогательные методы
+    private static boolean hasAliveUnits(List<Unit> units) {
+        for (Unit unit : units) {
+            if (unit != null && unit.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,127 @@
+package programs;
+
+/**
+ * Геометрия игрового поля: размеры, стоимость шагов и число колонок расстановки армии.
+ * Общая для поиска пути ({@link UnitTargetPathFinderImpl}), поиска целей
+ * ({@link SuitableForAttackUnitsFinderImpl}), расстановки ({@link GeneratePresetImpl}) и боя.
+ * Стандартное поле игры - {@link #DEFAULT}; большие поля нужны для экспериментов с масштабированием.
+ * Ограничение стоимостей straight &lt; diagonal &lt; 2 × straight сохраняет допустимость эвристики
+ * Чебышева и правила отсечения Jump Point Search.
+ * Клетка (x, y) нумеруется как x * height + y.
+ */
+public final class BoardGeometry {
+
+    public static final BoardGeometry DEFAULT = new BoardGeometry(27, 21, 10, 14, 3);
+
+    private final int width;
+    private final int height;
+    private final int straightCost;
+    private final int diagonalCost;
+    private final int armyColumns;
+
+    public BoardGeometry(int width, int height, int straightCost, int diagonalCost, int armyColumns) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Размеры поля должны быть положительными");
+        }
+        if ((long) width * height > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Слишком большое поле: " + width + "×" + height);
+        }
+        if (straightCost <= 0 || diagonalCost <= straightCost || diagonalCost >= 2 * straightCost) {
+            throw new IllegalArgumentException("Стоимости шагов должны удовлетворять 0 < прямой < диагональный < 2 × прямой");
+        }
+        if (armyColumns <= 0 || armyColumns > width) {
+            throw new IllegalArgumentException("Число колонок армии должно быть от 1 до ширины поля");
+        }
+        this.width = width;
+        this.height = height;
+        this.straightCost = straightCost;
+        this.diagonalCost = diagonalCost;
+        this.armyColumns = armyColumns;
+    }
+
+    /**
+     * Та же геометрия (стоимости и колонки армии) с другими размерами поля.
+     */
+    public BoardGeometry withSize(int width, int height) {
+        if (width == this.width && height == this.height) {
+            return this;
+        }
+        return new BoardGeometry(width, height, straightCost, diagonalCost, Math.min(armyColumns, width));
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int straightCost() {
+        return straightCost;
+    }
+
+    public int diagonalCost() {
+        return diagonalCost;
+    }
+
+    // Колонки 0..armyColumns-1 - расстановка армии компьютера
+    public int armyColumns() {
+        return armyColumns;
+    }
+
+    public int cellCount() {
+        return width * height;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    public int cellId(int x, int y) {
+        return x * height + y;
+    }
+
+    boolean matches(OccupancyBitboard board) {
+        return board.width() == width && board.height() == height;
+    }
+
+    int stepCost(boolean diagonal) {
+        return diagonal ? diagonalCost : straightCost;
+    }
+
+    // Эвристика Чебышева: допустима и согласована, пока диагональ не дешевле прямого шага
+    int heuristic(int x1, int y1, int x2, int y2) {
+        return Math.max(Math.abs(x1 - x2), Math.abs(y1 - y2)) * straightCost;
+    }
+
+    // Точная стоимость свободного пути: диагональные шаги, затем прямые
+    int octile(int dx, int dy) {
+        int diagonalSteps = Math.min(dx, dy);
+        return diagonalSteps * diagonalCost + (Math.max(dx, dy) - diagonalSteps) * straightCost;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BoardGeometry)) return false;
+        BoardGeometry that = (BoardGeometry) o;
+        return width == that.width && height == that.height && straightCost == that.straightCost
+                && diagonalCost == that.diagonalCost && armyColumns == that.armyColumns;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = width;
+        result = 31 * result + height;
+        result = 31 * result + straightCost;
+        result = 31 * result + diagonalCost;
+        result = 31 * result + armyColumns;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return width + "×" + height + " (" + straightCost + "/" + diagonalCost + ", колонок армии: " + armyColumns + ")";
+    }
+}
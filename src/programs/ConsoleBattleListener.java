@@ -0,0 +1,124 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.PrintBattleLog;
+
+import java.io.PrintStream;
+
+/**
+ * Консольный вывод хода боя (прежнее поведение {@link SimulateBattleImpl}).
+ * Каждая атака передаётся в PrintBattleLog игры, если он установлен.
+ * Текст пишется в заданный поток (по умолчанию System.out), ошибки - в System.err.
+ */
+final class ConsoleBattleListener implements BattleListener {
+
+    private final PrintBattleLog printBattleLog;
+    private final PrintStream out;
+
+    ConsoleBattleListener(PrintBattleLog printBattleLog) {
+        this(printBattleLog, System.out);
+    }
+
+    ConsoleBattleListener(PrintBattleLog printBattleLog, PrintStream out) {
+        this.printBattleLog = printBattleLog;
+        this.out = out;
+    }
+
+    @Override
+    public void onBattleStart() {
+        out.println("=== НАЧАЛО БОЯ ===");
+    }
+
+    @Override
+    public void onRoundStart(int round, int aliveUnits) {
+        out.println("\n--- Раунд " + round + " ---");
+        out.println("Живых юнитов: " + aliveUnits);
+    }
+
+    @Override
+    public void onAttack(Unit attacker, Unit target) {
+        // Если printBattleLog установлен, используем его, иначе логируем в консоль
+        if (printBattleLog != null) {
+            printBattleLog.printBattleLog(attacker, target);
+        } else {
+            // Фоллбэк логгирование для отладки
+            out.println("[LOG] " + attacker.getName() + " атаковал " + target.getName());
+        }
+
+        out.println(attacker.getName() + " атаковал " + target.getName());
+    }
+
+    @Override
+    public void onNoTarget(Unit attacker) {
+        out.println(attacker.getName() + " не нашёл цель для атаки");
+    }
+
+    @Override
+    public void onDeath(Unit unit) {
+        out.println(unit.getName() + " погиб!");
+    }
+
+    @Override
+    public void onAttackError(Unit attacker, Exception e) {
+        System.err.println("Ошибка при атаке " + attacker.getName() + ": " + e.getMessage());
+        e.printStackTrace();
+    }
+
+    @Override
+    public void onInterrupted(int round, boolean duringTurn) {
+        out.println(duringTurn ? "Бой прерван пользователем во время хода" : "Бой прерван пользователем");
+    }
+
+    @Override
+    public void onAttackInterrupted(Unit attacker) {
+        out.println("Симуляция боя прервана");
+    }
+
+    @Override
+    public void onRoundEnd(int round, int playerAlive, int computerAlive) {
+        if (playerAlive == 0 || computerAlive == 0) return;
+
+        // Статистика после раунда
+        out.println("После раунда " + round + ":");
+        out.println("  Игрок: " + playerAlive + " юнитов");
+        out.println("  Компьютер: " + computerAlive + " юнитов");
+    }
+
+    @Override
+    public void onBattleEnd(BattleResult result) {
+        switch (result.getEndReason()) {
+            case NO_UNITS:
+                out.println("Все юниты погибли!");
+                break;
+            case ROUND_LIMIT:
+                out.println("\nБой остановлен после " + result.getRounds() + " раундов (превышен лимит)");
+                announceBattleResult(result);
+                break;
+            case ARMY_DESTROYED:
+                announceBattleResult(result);
+                break;
+            default:
+                // О прерывании уже сообщено
+                break;
+        }
+    }
+
+    private void announceBattleResult(BattleResult result) {
+        int playerAlive = result.getPlayerSurvivors();
+        int computerAlive = result.getComputerSurvivors();
+
+        out.println("\n=== ИТОГИ БОЯ ===");
+        out.println("Армия игрока: " + playerAlive + " выживших");
+        out.println("Армия компьютера: " + computerAlive + " выживших");
+
+        if (playerAlive == 0 && computerAlive == 0) {
+            out.println("НИЧЬЯ! Все юниты погибли.");
+        } else if (playerAlive > 0 && computerAlive == 0) {
+            out.println("ПОБЕДА ИГРОКА!");
+        } else if (playerAlive == 0 && computerAlive > 0) {
+            out.println("ПОБЕДА КОМПЬЮТЕРА!");
+        } else {
+            out.println("БОЙ ПРЕРВАН. Игрок: " + playerAlive + ", Компьютер: " + computerAlive);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.util.*;
+
+/**
+ * Таблица урона по парам типов (атакующий, защищающийся), вычисляемая один раз на бой.
+ * С бонусами урон = round(атака × бонус атаки против типа цели / бонус защиты цели против
+ * типа атакующего), без бонусов - базовая атака (так считают программы игры).
+ * Бонусы задаются картами по имени типа; отсутствующий бонус равен 1.0.
+ * Алгоритмическая сложность: O(t²) на построение, O(1) на запрос, где t - число типов
+ */
+public final class DamageTable {
+
+    private final String[] typeNames;
+    // Плоская матрица: damage[attacker * types + defender]
+    private final int[] damage;
+
+    private DamageTable(String[] typeNames, int[] damage) {
+        this.typeNames = typeNames;
+        this.damage = damage;
+    }
+
+    /**
+     * Таблица по шаблонам юнитов (по одному на тип; повторяющиеся типы пропускаются).
+     */
+    public static DamageTable fromTemplates(List<Unit> templates, boolean applyBonuses) {
+        if (templates == null) {
+            throw new IllegalArgumentException("Список шаблонов не может быть null");
+        }
+
+        Map<String, Unit> byType = new LinkedHashMap<>();
+        for (Unit template : templates) {
+            if (template != null) byType.putIfAbsent(template.getUnitType(), template);
+        }
+
+        String[] typeNames = byType.keySet().toArray(new String[0]);
+        Unit[] samples = byType.values().toArray(new Unit[0]);
+        int types = typeNames.length;
+        int[] attack = new int[types];
+        double[][] attackBonus = new double[types][types];
+        double[][] defenceBonus = new double[types][types];
+        for (int a = 0; a < types; a++) {
+            attack[a] = samples[a].getBaseAttack();
+            for (int d = 0; d < types; d++) {
+                attackBonus[a][d] = bonus(samples[a].getAttackBonuses(), typeNames[d]);
+                defenceBonus[a][d] = bonus(samples[a].getDefenceBonuses(), typeNames[d]);
+            }
+        }
+        return build(typeNames, attack, attackBonus, defenceBonus, applyBonuses);
+    }
+
+    /**
+     * Таблица по упакованному состоянию боя: атака типа - у первого юнита этого типа.
+     */
+    static DamageTable of(PackedBattleState state, boolean applyBonuses) {
+        int types = state.typeNames.length;
+        int[] attack = new int[types];
+        boolean[] seen = new boolean[types];
+        for (int i = 0; i < state.size(); i++) {
+            int t = state.type[i];
+            if (!seen[t]) {
+                seen[t] = true;
+                attack[t] = state.attack[i];
+            }
+        }
+        return build(state.typeNames, attack, state.attackBonus, state.defenceBonus, applyBonuses);
+    }
+
+    static double bonus(Map<String, Double> bonuses, String typeName) {
+        Double value = bonuses != null ? bonuses.get(typeName) : null;
+        return value != null ? value : 1.0;
+    }
+
+    private static DamageTable build(String[] typeNames, int[] attack, double[][] attackBonus,
+                                     double[][] defenceBonus, boolean applyBonuses) {
+        int types = typeNames.length;
+        int[] damage = new int[types * types];
+        for (int a = 0; a < types; a++) {
+            for (int d = 0; d < types; d++) {
+                damage[a * types + d] = applyBonuses
+                        ? (int) Math.round(attack[a] * attackBonus[a][d] / defenceBonus[d][a])
+                        : attack[a];
+            }
+        }
+        return new DamageTable(typeNames.clone(), damage);
+    }
+
+    public int typeCount() {
+        return typeNames.length;
+    }
+
+    public String typeName(int type) {
+        return typeNames[type];
+    }
+
+    /**
+     * Номер типа в таблице или -1, если тип неизвестен.
+     */
+    public int typeIndex(String typeName) {
+        for (int i = 0; i < typeNames.length; i++) {
+            if (typeNames[i].equals(typeName)) return i;
+        }
+        return -1;
+    }
+
+    public int damage(int attackerType, int defenderType) {
+        return damage[attackerType * typeNames.length + defenderType];
+    }
+
+    public int damage(String attackerType, String defenderType) {
+        int a = typeIndex(attackerType);
+        int d = typeIndex(defenderType);
+        if (a < 0 || d < 0) {
+            throw new IllegalArgumentException("Неизвестный тип юнита: " + (a < 0 ? attackerType : defenderType));
+        }
+        return damage(a, d);
+    }
+}
@@ -0,0 +1,123 @@
+package programs;
+
+/**
+ * Кэш полей расстояний до цели, построенных обратным Дейкстрой.
+ * Ключ - (доска занятости, её версия, клетка цели, геометрия со стоимостями шагов): пока доска не изменилась, все атакующие,
+ * идущие к одной цели, получают путь спуском по градиенту поля за O(длина пути)
+ * вместо отдельного A*. Любое изменение доски меняет версию, и устаревшие поля
+ * пересчитываются при следующем обращении.
+ * Занятые клетки (кроме цели) в поле непроходимы, в том числе клетка самого атакующего:
+ * кратчайший путь никогда не проходит через старт и не использует его как угол диагонали,
+ * поэтому стоимость пути совпадает с A*.
+ * Алгоритмическая сложность: построение поля O(V log V), повторный запрос O(1) на поиск в кэше.
+ */
+final class DistanceFieldCache {
+
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Небольшой LRU-кэш: за раунд атакуют лишь несколько открытых целей
+    private static final int CAPACITY = 8;
+
+    private static final ThreadLocal<DistanceFieldCache> CURRENT =
+            ThreadLocal.withInitial(DistanceFieldCache::new);
+
+    private final OccupancyBitboard[] boards = new OccupancyBitboard[CAPACITY];
+    private final BoardGeometry[] geometries = new BoardGeometry[CAPACITY];
+    private final int[] versions = new int[CAPACITY];
+    private final int[] targets = new int[CAPACITY];
+    private final int[][] fields = new int[CAPACITY][];
+    private final long[] lastUsed = new long[CAPACITY];
+    private long tick;
+
+    private DistanceFieldCache() {
+    }
+
+    static DistanceFieldCache current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Возвращает поле расстояний до клетки (targetX, targetY) для текущей версии доски.
+     * Массив индексирован id клетки (x * height + y), недостижимые клетки - UNREACHABLE.
+     */
+    int[] field(BoardGeometry geometry, OccupancyBitboard board, int targetX, int targetY) {
+        int targetCell = targetX * board.height() + targetY;
+        int version = board.version();
+        int victim = 0;
+
+        for (int i = 0; i < CAPACITY; i++) {
+            if (boards[i] == board && versions[i] == version && targets[i] == targetCell
+                    && geometry.equals(geometries[i])) {
+                lastUsed[i] = ++tick;
+                return fields[i];
+            }
+            if (lastUsed[i] < lastUsed[victim]) {
+                victim = i;
+            }
+        }
+
+        // Промах: пересчитываем поле в наименее давно использованной записи
+        int cellCount = board.width() * board.height();
+        if (fields[victim] == null || fields[victim].length < cellCount) {
+            fields[victim] = new int[cellCount];
+        }
+        buildField(geometry, board, targetX, targetY, fields[victim]);
+
+        boards[victim] = board;
+        geometries[victim] = geometry;
+        versions[victim] = version;
+        targets[victim] = targetCell;
+        lastUsed[victim] = ++tick;
+        return fields[victim];
+    }
+
+    /**
+     * Дейкстра от цели по тому же графу, что и A*: стоимость 10/14 и запрет срезания углов.
+     * Граф симметричен, поэтому расстояние от цели равно расстоянию до цели.
+     */
+    private static void buildField(BoardGeometry geometry, OccupancyBitboard board,
+                                   int targetX, int targetY, int[] field) {
+        int height = board.height();
+        PathSearchWorkspace workspace = PathSearchWorkspace.current();
+        workspace.begin(board.width(), height);
+        workspace.useObstacleBoard(board, targetX * height + targetY, -1);
+        workspace.start(workspace.cellId(targetX, targetY), 0);
+
+        while (!workspace.isHeapEmpty()) {
+            int current = workspace.poll();
+            workspace.close(current);
+
+            int x = current / height;
+            int y = current % height;
+            int currentG = workspace.g(current);
+
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+
+                    int nx = x + dx;
+                    int ny = y + dy;
+                    if (!workspace.isWalkable(nx, ny)) continue;
+
+                    int neighbor = workspace.cellId(nx, ny);
+                    if (workspace.isClosed(neighbor)) continue;
+
+                    boolean diagonal = dx != 0 && dy != 0;
+                    if (diagonal && (!workspace.isWalkable(x, ny) || !workspace.isWalkable(nx, y))) {
+                        continue;
+                    }
+
+                    int tentativeG = currentG + geometry.stepCost(diagonal);
+                    if (tentativeG < workspace.g(neighbor)) {
+                        workspace.relax(neighbor, current, tentativeG, tentativeG);
+                    }
+                }
+            }
+        }
+
+        int cellCount = board.width() * height;
+        for (int cell = 0; cell < cellCount; cell++) {
+            field[cell] = workspace.isClosed(cell) ? workspace.g(cell) : UNREACHABLE;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+
+import java.util.*;
+
+/**
+ * Поле потока к ближайшей цели: один Дейкстра от всех целей сразу на армию за раунд
+ * вместо отдельного A* для каждого юнита. Для каждой клетки хранится стоимость пути до
+ * ближайшей цели и следующий шаг, поэтому юнит узнаёт свой ход за O(1).
+ * Граф тот же, что у {@link UnitTargetPathFinderImpl}: стоимость шагов из {@link BoardGeometry}, занятые клетки
+ * непроходимы, диагональ запрещена, если занят хотя бы один из двух углов.
+ * Цели и клетки самих юнитов в поле - препятствия: кратчайший путь не проходит через старт
+ * и не огибает цель по диагонали (из соседней с углом клетки цель ближе напрямую), поэтому
+ * стоимость из клетки юнита равна минимуму стоимостей {@link UnitTargetPathFinderImpl#getTargetPath}
+ * по всем целям. Исключение - соседняя цель, к которой нельзя шагнуть напрямую: getTargetPath
+ * тогда пути не возвращает, а поле ведёт в обход через свободную клетку.
+ * Поле - снимок доски: после перемещений и гибели юнитов его строят заново.
+ * Алгоритмическая сложность: O(V log V) на построение, O(1) на запрос шага, где V - число клеток
+ */
+public final class FlowField {
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int[] DX = {0, 1, 0, -1, 1, 1, -1, -1};
+    private static final int[] DY = {1, 0, -1, 0, 1, -1, 1, -1};
+
+    private final int width;
+    private final int height;
+    // Стоимость до ближайшей цели (0 - сама цель) и следующая клетка (-1 - шага нет)
+    private final int[] distance;
+    private final int[] next;
+
+    private FlowField(int width, int height, int[] distance, int[] next) {
+        this.width = width;
+        this.height = height;
+        this.distance = distance;
+        this.next = next;
+    }
+
+    /**
+     * Поле к открытым для атаки юнитам врага: цели выбирает
+     * {@link SuitableForAttackUnitsFinderImpl#getSuitableUnits(List, boolean)}.
+     */
+    public static FlowField towardSuitable(List<List<Unit>> unitsByRow, boolean isLeftArmyTarget,
+                                           OccupancyBitboard board) {
+        if (board == null) {
+            throw new IllegalArgumentException("Доска занятости не может быть null");
+        }
+        return towardSuitable(unitsByRow, isLeftArmyTarget, board,
+                BoardGeometry.DEFAULT.withSize(board.width(), board.height()));
+    }
+
+    /**
+     * То же с заданной геометрией поля (размеры доски и стоимость шагов).
+     */
+    public static FlowField towardSuitable(List<List<Unit>> unitsByRow, boolean isLeftArmyTarget,
+                                           OccupancyBitboard board, BoardGeometry geometry) {
+        SuitableForAttackUnitsFinderImpl finder = new SuitableForAttackUnitsFinderImpl();
+        finder.setGeometry(geometry);
+        List<Unit> targets = finder.getSuitableUnits(unitsByRow, isLeftArmyTarget, new ArrayList<>());
+        return toward(targets, board, geometry);
+    }
+
+    /**
+     * Поле к живым юнитам из targets на доске board со стандартной стоимостью шагов.
+     */
+    public static FlowField toward(List<Unit> targets, OccupancyBitboard board) {
+        if (board == null) {
+            throw new IllegalArgumentException("Доска занятости не может быть null");
+        }
+        return toward(targets, board, BoardGeometry.DEFAULT.withSize(board.width(), board.height()));
+    }
+
+    /**
+     * Поле к живым юнитам из targets на доске board (доска должна учитывать всех юнитов боя
+     * и совпадать по размерам с geometry).
+     */
+    public static FlowField toward(List<Unit> targets, OccupancyBitboard board, BoardGeometry geometry) {
+        if (board == null || geometry == null) {
+            throw new IllegalArgumentException("Доска занятости и геометрия поля не могут быть null");
+        }
+        if (!geometry.matches(board)) {
+            throw new IllegalArgumentException("Доска должна быть размером " + geometry.width() + "×" + geometry.height());
+        }
+        if (targets == null) {
+            targets = Collections.emptyList();
+        }
+
+        int width = geometry.width();
+        int height = geometry.height();
+        int cellCount = geometry.cellCount();
+
+        // Обратный Дейкстра от всех целей: каждая - источник с нулевой стоимостью
+        PathSearchWorkspace workspace = PathSearchWorkspace.current();
+        workspace.begin(width, height);
+        workspace.useObstacleBoard(board, -1, -1);
+        for (Unit target : targets) {
+            if (target == null || !target.isAlive()) continue;
+            int x = target.getxCoordinate();
+            int y = target.getyCoordinate();
+            if (x < 0 || x >= width || y < 0 || y >= height) continue;
+
+            int cell = workspace.cellId(x, y);
+            if (workspace.isGoal(cell)) continue;
+            workspace.markGoal(cell);
+            workspace.start(cell, 0);
+        }
+
+        while (!workspace.isHeapEmpty()) {
+            int current = workspace.poll();
+            workspace.close(current);
+
+            int x = current / height;
+            int y = current % height;
+            int currentG = workspace.g(current);
+
+            for (int dir = 0; dir < DX.length; dir++) {
+                int nx = x + DX[dir];
+                int ny = y + DY[dir];
+                if (!workspace.isWalkable(nx, ny)) continue;
+
+                int neighbor = workspace.cellId(nx, ny);
+                if (workspace.isClosed(neighbor)) continue;
+
+                boolean diagonal = DX[dir] != 0 && DY[dir] != 0;
+                if (diagonal && (!workspace.isWalkable(x, ny) || !workspace.isWalkable(nx, y))) {
+                    continue;
+                }
+
+                int tentativeG = currentG + geometry.stepCost(diagonal);
+                if (tentativeG < workspace.g(neighbor)) {
+                    workspace.relax(neighbor, current, tentativeG, tentativeG);
+                }
+            }
+        }
+
+        // Стоимость свободных клеток и целей - из поиска; клеток юнитов - через лучшего соседа
+        int[] distance = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            distance[cell] = workspace.isClosed(cell) ? workspace.g(cell) : UNREACHABLE;
+        }
+
+        int[] next = new int[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            next[cell] = -1;
+            if (workspace.isGoal(cell)) continue;
+
+            int x = cell / height;
+            int y = cell % height;
+            int best = UNREACHABLE;
+            for (int dir = 0; dir < DX.length; dir++) {
+                int nx = x + DX[dir];
+                int ny = y + DY[dir];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+
+                int neighbor = nx * height + ny;
+                // Шагать можно в свободную клетку или в клетку цели (это атака)
+                if (board.isOccupied(neighbor) && !workspace.isGoal(neighbor)) continue;
+                if (distance[neighbor] == UNREACHABLE) continue;
+
+                boolean diagonal = DX[dir] != 0 && DY[dir] != 0;
+                if (diagonal && (board.isOccupied(x, ny) || board.isOccupied(nx, y))) continue;
+
+                int cost = distance[neighbor] + geometry.stepCost(diagonal);
+                if (cost < best) {
+                    best = cost;
+                    next[cell] = neighbor;
+                }
+            }
+            if (board.isOccupied(cell)) {
+                distance[cell] = best;
+            }
+        }
+
+        return new FlowField(width, height, distance, next);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Стоимость пути из (x, y) до ближайшей цели: 0 - клетка цели, UNREACHABLE - пути нет.
+     */
+    public int distance(int x, int y) {
+        return isValid(x, y) ? distance[x * height + y] : UNREACHABLE;
+    }
+
+    /**
+     * Id следующей клетки (x * height + y) или -1, если шага нет (клетка цели или пути нет).
+     * Следующая клетка - клетка цели, если цель соседняя.
+     */
+    public int nextCell(int x, int y) {
+        return isValid(x, y) ? next[x * height + y] : -1;
+    }
+
+    /**
+     * Следующий шаг из (x, y) или null, если шага нет.
+     */
+    public Edge nextStep(int x, int y) {
+        int cell = nextCell(x, y);
+        return cell < 0 ? null : new Edge(cell / height, cell % height);
+    }
+
+    /**
+     * Путь из (x, y) до ближайшей цели по следующим шагам (включая старт и цель)
+     * или пустой список, если пути нет. O(длина пути).
+     */
+    public List<Edge> pathFrom(int x, int y) {
+        if (distance(x, y) == UNREACHABLE) {
+            return Collections.emptyList();
+        }
+
+        List<Edge> path = new ArrayList<>();
+        path.add(new Edge(x, y));
+        for (int cell = next[x * height + y]; cell >= 0; cell = next[cell]) {
+            path.add(new Edge(cell / height, cell % height));
+        }
+        return path;
+    }
+
+    private boolean isValid(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+}
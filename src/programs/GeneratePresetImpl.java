@@ -8,14 +8,35 @@ import java.util.*;
 
 /**
  * Реализация генерации армии компьютера.
- * Алгоритмическая сложность: O(n × m), где n = 4 типа юнитов, m = 11 (максимум юнитов одного типа)
- * В реальности: O(4 × 11 × budget/minCost) = O(44 × 75) = O(3300) операций
+ * Состав подбирается точно ({@link ArmyKnapsackOptimizer}): ограниченный рюкзак по очкам × типам.
+ * Готовые составы кэшируются ({@link PresetCache}): повторный вызов с теми же шаблонами и бюджетом - O(k)
+ * на создание k копий юнитов. Копии одного шаблона разделяют неизменяемые карты бонусов;
+ * урон по парам типов для симуляции - {@link DamageTable#fromTemplates}.
+ * Алгоритмическая сложность: O(n × P × m), где n = 4 типа юнитов, P - бюджет, m = 11 (максимум юнитов одного типа)
+ * В реальности: O(4 × 1500 × 12) ≈ 72 000 операций
  */
 public class GeneratePresetImpl implements GeneratePreset {
     private static final int MAX_UNITS_PER_TYPE = 11;
-    private static final int FIELD_HEIGHT = 21;
-    private static final int FIELD_WIDTH = 3; // Колонки 0, 1, 2 для армии компьютера
-    private static final int MAX_TOTAL_UNITS = FIELD_HEIGHT * FIELD_WIDTH; // 63 максимум
+    // Разных наборов шаблонов/бюджетов за сессию немного: 16 с запасом
+    private static final int PRESET_CACHE_SIZE = 16;
+
+    // Общий для всех экземпляров: игра может создавать генератор заново на каждый матч
+    private static final PresetCache PRESET_CACHE = new PresetCache(PRESET_CACHE_SIZE);
+
+    private final ArmyKnapsackOptimizer optimizer = new ArmyKnapsackOptimizer(MAX_UNITS_PER_TYPE);
+
+    // Целевая функция состава: по умолчанию атака, при равенстве - здоровье
+    private ArmyObjective objective = ArmyObjective.TOTAL_ATTACK;
+    // Высота поля и колонки армии компьютера (стандартно 21 × колонки 0, 1, 2 - максимум 63 юнита)
+    private BoardGeometry geometry = BoardGeometry.DEFAULT;
+
+    public void setObjective(ArmyObjective objective) {
+        this.objective = objective != null ? objective : ArmyObjective.TOTAL_ATTACK;
+    }
+
+    public void setGeometry(BoardGeometry geometry) {
+        this.geometry = geometry != null ? geometry : BoardGeometry.DEFAULT;
+    }
 
     @Override
     public Army generate(List<Unit> unitList, int maxPoints) {
@@ -24,85 +45,100 @@ public class GeneratePresetImpl implements GeneratePreset {
             return new Army(new ArrayList<>());
         }
 
-        // 1. Расчет коэффициентов эффективности для каждого типа юнитов
-        List<UnitEfficiency> efficiencies = calculateEfficiencies(unitList);
+        // 0. Тот же набор шаблонов и бюджет уже встречались - собираем армию по готовому составу
+        BoardGeometry geometry = this.geometry;
+        PresetCache.Key key = new PresetCache.Key(unitList, maxPoints, objective, geometry);
+        PresetCache.Preset preset = PRESET_CACHE.get(key);
+        if (preset != null) {
+            return instantiate(unitList, preset);
+        }
+
+        // 1. Оптимальное количество юнитов каждого типа (точный рюкзак)
+        int[] counts = optimizer.optimize(unitList, maxPoints, objective);
 
-        // 2. Сортировка по эффективности (атака/стоимость → здоровье/стоимость)
-        efficiencies.sort((e1, e2) -> {
-            int cmp = Double.compare(e2.attackRatio, e1.attackRatio);
-            return cmp != 0 ? cmp : Double.compare(e2.healthRatio, e1.healthRatio);
+        // 2. Порядок типов для расстановки: атака/стоимость → здоровье/стоимость
+        List<Integer> order = new ArrayList<>(unitList.size());
+        for (int i = 0; i < unitList.size(); i++) {
+            if (counts[i] > 0) order.add(i);
+        }
+        order.sort((i1, i2) -> {
+            Unit u1 = unitList.get(i1);
+            Unit u2 = unitList.get(i2);
+            int cmp = Double.compare((double) u2.getBaseAttack() / u2.getCost(),
+                    (double) u1.getBaseAttack() / u1.getCost());
+            return cmp != 0 ? cmp : Double.compare((double) u2.getHealth() / u2.getCost(),
+                    (double) u1.getHealth() / u1.getCost());
         });
 
-        // 3. Жадный алгоритм выбора юнитов
-        List<Unit> armyUnits = greedySelection(efficiencies, maxPoints);
+        // 3. Создание юнитов: "Archer 1", "Archer 2", ...
+        // Карты бонусов копируются один раз на шаблон и общие у всех его копий
+        List<Map<String, Double>> attackBonuses = new ArrayList<>(unitList.size());
+        List<Map<String, Double>> defenceBonuses = new ArrayList<>(unitList.size());
+        for (Unit template : unitList) {
+            attackBonuses.add(template != null ? freeze(template.getAttackBonuses()) : Collections.emptyMap());
+            defenceBonuses.add(template != null ? freeze(template.getDefenceBonuses()) : Collections.emptyMap());
+        }
+
+        List<Unit> armyUnits = new ArrayList<>();
+        List<Integer> templateIndex = new ArrayList<>();
+        List<Integer> unitNumber = new ArrayList<>();
+        for (int index : order) {
+            Unit template = unitList.get(index);
+            for (int i = 0; i < counts[index]; i++) {
+                armyUnits.add(createUnitCopy(template, i + 1,
+                        attackBonuses.get(index), defenceBonuses.get(index)));
+                templateIndex.add(index);
+                unitNumber.add(i + 1);
+            }
+        }
 
         // 4. Распределение координат для армии компьютера (улучшенная версия)
-        assignComputerCoordinates(armyUnits);
+        assignComputerCoordinates(armyUnits, geometry);
 
-        // 5. Создание и возврат армии
+        // 5. Запоминание состава и координат для следующих вызовов
+        PRESET_CACHE.put(key, toPreset(armyUnits, templateIndex, unitNumber, attackBonuses, defenceBonuses));
+
+        // 6. Создание и возврат армии
         Army army = new Army(armyUnits);
         army.setPoints(calculateTotalCost(armyUnits));
         return army;
     }
 
-    private List<UnitEfficiency> calculateEfficiencies(List<Unit> unitList) {
-        List<UnitEfficiency> efficiencies = new ArrayList<>(unitList.size());
-        for (Unit unit : unitList) {
-            double attackRatio = (double) unit.getBaseAttack() / unit.getCost();
-            double healthRatio = (double) unit.getHealth() / unit.getCost();
-            efficiencies.add(new UnitEfficiency(unit, attackRatio, healthRatio));
+    private Army instantiate(List<Unit> unitList, PresetCache.Preset preset) {
+        List<Unit> armyUnits = new ArrayList<>(preset.size());
+        for (int i = 0; i < preset.size(); i++) {
+            int index = preset.templateIndex[i];
+            Unit unit = createUnitCopy(unitList.get(index), preset.unitNumber[i],
+                    preset.attackBonuses.get(index), preset.defenceBonuses.get(index));
+            unit.setxCoordinate(preset.x[i]);
+            unit.setyCoordinate(preset.y[i]);
+            armyUnits.add(unit);
         }
-        return efficiencies;
+        Army army = new Army(armyUnits);
+        army.setPoints(calculateTotalCost(armyUnits));
+        return army;
     }
 
-    private List<Unit> greedySelection(List<UnitEfficiency> efficiencies, int maxPoints) {
-        List<Unit> selected = new ArrayList<>();
-        int remainingPoints = maxPoints;
-        Map<String, Integer> typeCount = new HashMap<>();
-
-        // Проходим по типам в порядке убывания эффективности
-        for (UnitEfficiency eff : efficiencies) {
-            Unit template = eff.unit;
-            String type = template.getUnitType();
-            int cost = template.getCost();
-
-            // Проверяем, не достигли ли лимита для этого типа
-            int currentCount = typeCount.getOrDefault(type, 0);
-            if (currentCount >= MAX_UNITS_PER_TYPE) continue;
-
-            // Максимальное количество, которое можно купить
-            int maxByType = MAX_UNITS_PER_TYPE - currentCount;
-            int maxByPoints = remainingPoints / cost;
-            int toBuy = Math.min(maxByType, maxByPoints);
-
-            // Добавляем юнитов
-            for (int i = 0; i < toBuy; i++) {
-                Unit newUnit = createUnitCopy(template, currentCount + i + 1);
-                selected.add(newUnit);
-                remainingPoints -= cost;
-            }
-
-            if (toBuy > 0) {
-                typeCount.put(type, currentCount + toBuy);
-            }
-
-            // Если потратили все очки, выходим
-            if (remainingPoints <= 0) break;
+    private PresetCache.Preset toPreset(List<Unit> units, List<Integer> templateIndex, List<Integer> unitNumber,
+                                        List<Map<String, Double>> attackBonuses,
+                                        List<Map<String, Double>> defenceBonuses) {
+        int size = units.size();
+        int[] templates = new int[size];
+        int[] numbers = new int[size];
+        int[] xs = new int[size];
+        int[] ys = new int[size];
+        for (int i = 0; i < size; i++) {
+            templates[i] = templateIndex.get(i);
+            numbers[i] = unitNumber.get(i);
+            xs[i] = units.get(i).getxCoordinate();
+            ys[i] = units.get(i).getyCoordinate();
         }
-
-        return selected;
+        return new PresetCache.Preset(templates, numbers, xs, ys, attackBonuses, defenceBonuses);
     }
 
-    private Unit createUnitCopy(Unit template, int index) {
+    private Unit createUnitCopy(Unit template, int index,
+                                Map<String, Double> attackBonuses, Map<String, Double> defenceBonuses) {
         // КРИТИЧЕСКИ ВАЖНО: "Archer 1" (с пробелом) для корректной работы игры
-
-        // Исправлено: всегда создаем новые HashMap, даже если исходные null
-        Map<String, Double> attackBonuses = template.getAttackBonuses() != null ?
-                new HashMap<>(template.getAttackBonuses()) : new HashMap<>();
-
-        Map<String, Double> defenceBonuses = template.getDefenceBonuses() != null ?
-                new HashMap<>(template.getDefenceBonuses()) : new HashMap<>();
-
         return new Unit(
                 template.getUnitType() + " " + index,
                 template.getUnitType(),
@@ -116,13 +152,20 @@ public class GeneratePresetImpl implements GeneratePreset {
         );
     }
 
-    private void assignComputerCoordinates(List<Unit> units) {
+    // Неизменяемая копия карты бонусов (null - пустая карта): её безопасно разделять между юнитами
+    private static Map<String, Double> freeze(Map<String, Double> bonuses) {
+        return bonuses != null ? Collections.unmodifiableMap(new HashMap<>(bonuses)) : Collections.emptyMap();
+    }
+
+    private void assignComputerCoordinates(List<Unit> units, BoardGeometry geometry) {
         if (units == null || units.isEmpty()) return;
 
         // Улучшенное распределение координат:
         // 1. Группируем юнитов по типам для лучшего визуального представления
-        // 2. Распределяем равномерно по 3 колонкам (0, 1, 2)
-        // 3. В каждой колонке размещаем не более 21 юнита (высота поля)
+        // 2. Распределяем равномерно по колонкам армии (стандартно 0, 1, 2)
+        // 3. В каждой колонке размещаем не более height юнитов (высота поля, стандартно 21)
+        int fieldHeight = geometry.height();
+        int fieldWidth = geometry.armyColumns();
 
         // Группировка по типам
         Map<String, List<Unit>> unitsByType = new LinkedHashMap<>();
@@ -149,13 +192,13 @@ public class GeneratePresetImpl implements GeneratePreset {
                 currentRow++;
 
                 // Если достигли дна колонки, переходим на следующую колонку
-                if (currentRow >= FIELD_HEIGHT) {
+                if (currentRow >= fieldHeight) {
                     currentRow = 0;
                     currentColumn++;
 
                     // Если все колонки заполнены, начинаем с первой колонки
                     // (в теории не должно случиться, т.к. максимум 44 юнита < 63)
-                    if (currentColumn >= FIELD_WIDTH) {
+                    if (currentColumn >= fieldWidth) {
                         currentColumn = 0;
                     }
                 }
@@ -167,30 +210,30 @@ public class GeneratePresetImpl implements GeneratePreset {
             currentRow = 0;
 
             // Если вышли за пределы колонок, возвращаемся к началу
-            if (currentColumn >= FIELD_WIDTH) {
+            if (currentColumn >= fieldWidth) {
                 currentColumn = 0;
             }
         }
 
         // Валидация: убедимся, что все координаты в допустимых пределах
-        validateCoordinates(units);
+        validateCoordinates(units, fieldWidth, fieldHeight);
     }
 
-    private void validateCoordinates(List<Unit> units) {
+    private void validateCoordinates(List<Unit> units, int fieldWidth, int fieldHeight) {
         for (Unit unit : units) {
             int x = unit.getxCoordinate();
             int y = unit.getyCoordinate();
 
-            if (x < 0 || x >= FIELD_WIDTH) {
+            if (x < 0 || x >= fieldWidth) {
                 System.err.println("Предупреждение: юнит " + unit.getName() +
                         " имеет недопустимую X-координату: " + x);
-                unit.setxCoordinate(Math.max(0, Math.min(FIELD_WIDTH - 1, x)));
+                unit.setxCoordinate(Math.max(0, Math.min(fieldWidth - 1, x)));
             }
 
-            if (y < 0 || y >= FIELD_HEIGHT) {
+            if (y < 0 || y >= fieldHeight) {
                 System.err.println("Предупреждение: юнит " + unit.getName() +
                         " имеет недопустимую Y-координату: " + y);
-                unit.setyCoordinate(Math.max(0, Math.min(FIELD_HEIGHT - 1, y)));
+                unit.setyCoordinate(Math.max(0, Math.min(fieldHeight - 1, y)));
             }
         }
     }
@@ -202,17 +245,4 @@ public class GeneratePresetImpl implements GeneratePreset {
         }
         return total;
     }
-
-    // Вспомогательный класс для хранения эффективности юнита
-    private static class UnitEfficiency {
-        final Unit unit;
-        final double attackRatio;
-        final double healthRatio;
-
-        UnitEfficiency(Unit unit, double attackRatio, double healthRatio) {
-            this.unit = unit;
-            this.attackRatio = attackRatio;
-            this.healthRatio = healthRatio;
-        }
-    }
-}
\ No newline at end of file
+}
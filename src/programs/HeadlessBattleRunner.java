@@ -0,0 +1,71 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+
+/**
+ * Безголовая симуляция боя: тот же порядок ходов и удаление павших, что и в
+ * {@link SimulateBattleImpl}, но без вывода в консоль и без пауз между атаками.
+ * Предназначена для массового прогона боёв (балансировка, подбор ИИ).
+ * Программы юнитов сами засыпают на GameSpeedUtil.getGameSpeed() миллисекунд при каждом шаге,
+ * поэтому для полной скорости их нужно создавать с GameSpeedUtil(0).
+ * Экземпляр не хранит состояния между боями и может использоваться из нескольких потоков.
+ */
+public class HeadlessBattleRunner {
+
+    private final BattleListener listener;
+    private BoardGeometry geometry = BoardGeometry.DEFAULT;
+    // Копировщик армий для веток из снимка (null - копировщик по умолчанию, без пауз)
+    private ArmyCopier armyCopier;
+
+    public HeadlessBattleRunner() {
+        this(BattleListener.NONE);
+    }
+
+    // Слушатель для сбора статистики без вывода (например, подсчёта событий)
+    public HeadlessBattleRunner(BattleListener listener) {
+        this.listener = listener != null ? listener : BattleListener.NONE;
+    }
+
+    // Поле, на котором стоят армии (размеры битовой доски занятости)
+    public void setGeometry(BoardGeometry geometry) {
+        this.geometry = geometry != null ? geometry : BoardGeometry.DEFAULT;
+    }
+
+    public void setArmyCopier(ArmyCopier armyCopier) {
+        this.armyCopier = armyCopier;
+    }
+
+    /**
+     * Проводит бой до конца и возвращает его итог. Армии изменяются на месте.
+     */
+    public BattleResult run(Army playerArmy, Army computerArmy) throws InterruptedException {
+        return new BattleEngine(listener, BattlePacer.NONE, geometry).run(playerArmy, computerArmy);
+    }
+
+    /**
+     * Продолжает бой из снимка на армиях того же состава: состояние снимка записывается в них,
+     * бой идёт со следующего за снимком раунда. Ходы в результате - только сыгранные после снимка.
+     */
+    public BattleResult resume(BattleSnapshot snapshot, Army playerArmy, Army computerArmy)
+            throws InterruptedException {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Снимок боя не может быть null");
+        }
+        snapshot.restoreTo(playerArmy, computerArmy);
+        return new BattleEngine(listener, BattlePacer.NONE, geometry)
+                .run(playerArmy, computerArmy, snapshot.getCompletedRounds() + 1);
+    }
+
+    /**
+     * Новая ветка боя из снимка: копии исходных армий ({@link BattleSnapshot#fork(ArmyCopier)})
+     * доигрываются до конца. O(n) на подготовку ветки вместо повторения раундов до снимка.
+     */
+    public BattleResult fork(BattleSnapshot snapshot) throws InterruptedException {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Снимок боя не может быть null");
+        }
+        Army[] armies = snapshot.fork(armyCopier != null ? armyCopier : new ArmyCopier());
+        return new BattleEngine(listener, BattlePacer.NONE, geometry)
+                .run(armies[0], armies[1], snapshot.getCompletedRounds() + 1);
+    }
+}
@@ -0,0 +1,567 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Edge;
+import com.battle.heroes.army.programs.UnitTargetPathFinder;
+
+import java.util.*;
+
+/**
+ * Иерархический поиск пути (HPA*) для больших полей - альтернатива {@link UnitTargetPathFinderImpl}.
+ * Поле делится на кластеры clusterSize × clusterSize. На общей границе соседних кластеров
+ * каждый непрерывный участок, свободный с обеих сторон, даёт вход (короче 6 клеток - один
+ * посередине, иначе два по краям). Абстрактный граф: входы, рёбра между входами одного кластера
+ * (стоимость кратчайшего пути внутри кластера) и переходы через границу (прямой шаг).
+ * Запрос: старт и цель подключаются к входам своих кластеров поиском внутри кластера, A* идёт
+ * по абстрактному графу, затем уточняются только кластеры на найденном маршруте.
+ * Граф обновляется инкрементально: копия доски сравнивается с текущей по словам, и заново
+ * строятся только кластеры с изменившимися клетками (и соседи по изменившейся границе).
+ * Стоимости от входа до остальных входов кластера считаются лениво - когда абстрактный поиск
+ * впервые раскрывает этот вход, поэтому изменения вдали от маршрутов почти ничего не стоят.
+ * Пути близки к кратчайшим, но не обязательно кратчайшие. Если абстрактный поиск не находит
+ * пути (например, цель доступна только через клетку границы, занятую ею самой), запрос
+ * выполняет обычный A* - полнота не теряется.
+ * Экземпляр хранит граф между вызовами и не потокобезопасен: один экземпляр на поток боя.
+ * Алгоритмическая сложность: запрос O(c² log c + N log N + L × c² log c), где c - размер кластера,
+ * N - число входов, L - число кластеров на маршруте; перестроение кластера O(c), плюс
+ * O(c² log c) при первом раскрытии каждого его входа
+ */
+public class HierarchicalPathFinder implements UnitTargetPathFinder {
+
+    // Участок границы короче этого получает один вход посередине, длиннее - два по краям
+    private static final int LONG_ENTRANCE = 6;
+    private static final int DEFAULT_CLUSTER_SIZE = 10;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int[] DX = {0, 1, 0, -1, 1, 1, -1, -1};
+    private static final int[] DY = {1, 0, -1, 0, 1, -1, 1, -1};
+
+    private final UnitTargetPathFinderImpl flatFinder = new UnitTargetPathFinderImpl();
+    private BoardGeometry geometry = BoardGeometry.DEFAULT;
+    private int clusterSize = DEFAULT_CLUSTER_SIZE;
+
+    // Абстрактный граф (null - ещё не построен или сброшен сменой настроек)
+    private Graph graph;
+
+    public void setGeometry(BoardGeometry geometry) {
+        this.geometry = geometry != null ? geometry : BoardGeometry.DEFAULT;
+        flatFinder.setGeometry(this.geometry);
+        graph = null;
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    public void setClusterSize(int clusterSize) {
+        if (clusterSize < 2) {
+            throw new IllegalArgumentException("Размер кластера должен быть не меньше 2");
+        }
+        this.clusterSize = clusterSize;
+        graph = null;
+    }
+
+    public int getClusterSize() {
+        return clusterSize;
+    }
+
+    // Раскрытые и посещённые узлы запроса: абстрактный граф, поиски внутри кластеров и обычный A*
+    private final PathSearchStats searchStats = new PathSearchStats();
+
+    public PathSearchStats getSearchStats() {
+        return searchStats;
+    }
+
+    @Override
+    public List<Edge> getTargetPath(Unit attackUnit, Unit targetUnit, List<Unit> existingUnitList) {
+        if (attackUnit == null || targetUnit == null || !attackUnit.isAlive() || !targetUnit.isAlive()) {
+            return Collections.emptyList();
+        }
+
+        int startX = attackUnit.getxCoordinate();
+        int startY = attackUnit.getyCoordinate();
+        int targetX = targetUnit.getxCoordinate();
+        int targetY = targetUnit.getyCoordinate();
+        BoardGeometry geometry = this.geometry;
+
+        // Невалидные координаты, совпадение и соседняя цель - как у обычного поиска
+        if (!geometry.contains(startX, startY) || !geometry.contains(targetX, targetY)
+                || (Math.abs(startX - targetX) <= 1 && Math.abs(startY - targetY) <= 1)) {
+            return flatFinder.getTargetPath(attackUnit, targetUnit, existingUnitList);
+        }
+
+        // Доска боя, если привязана, иначе - по списку юнитов (граф всё равно обновится по разнице)
+        OccupancyBitboard board = OccupancyBitboard.bound();
+        if (board == null || !geometry.matches(board)) {
+            board = OccupancyBitboard.fromUnits(
+                    existingUnitList != null ? existingUnitList : Collections.emptyList(),
+                    geometry.width(), geometry.height());
+        }
+
+        if (graph == null) {
+            graph = new Graph(geometry, clusterSize);
+        }
+        graph.sync(board);
+
+        List<Edge> path = graph.findPath(geometry.cellId(startX, startY), geometry.cellId(targetX, targetY));
+        if (path != null) {
+            searchStats.record(graph.expanded, graph.visited);
+            return path;
+        }
+
+        // Абстрактный граф пути не нашёл - обычный A* по всему полю
+        OccupancyBitboard previous = OccupancyBitboard.bind(board);
+        try {
+            path = flatFinder.getTargetPath(attackUnit, targetUnit, existingUnitList);
+        } finally {
+            OccupancyBitboard.bind(previous);
+        }
+        PathSearchWorkspace workspace = PathSearchWorkspace.current();
+        searchStats.record(graph.expanded + workspace.expandedCount(), graph.visited + workspace.visitedCount());
+        return path;
+    }
+
+    /**
+     * Абстрактный граф входов кластеров и копия доски, по которой он построен.
+     */
+    private static final class Graph {
+        private final BoardGeometry geometry;
+        private final int size;
+        private final int clustersX;
+        private final int clustersY;
+
+        // По кластеру: клетки входов, переходы каждого входа (клетки соседних кластеров),
+        // матрица стоимостей между входами m × m (UNREACHABLE - пути внутри кластера нет)
+        // и отметки посчитанных строк матрицы
+        private final int[][] nodes;
+        private final int[][][] partners;
+        private final int[][] costs;
+        private final boolean[][] costsReady;
+        // Номер входа в списке его кластера (-1 - клетка не вход)
+        private final int[] nodeSlot;
+
+        // Копия доски, по которой построен граф, и отметки кластеров к перестроению
+        private final long[] mirror;
+        private final boolean[] dirty;
+        private OccupancyBitboard syncedBoard;
+        private int syncedVersion;
+        private boolean built;
+
+        // Поиск внутри кластера идёт в своём пространстве размером с кластер (в локальных координатах):
+        // ленивый расчёт стоимостей вызывается посреди абстрактного поиска
+        private final PathSearchWorkspace local = PathSearchWorkspace.create();
+        // Левый верхний угол и высота кластера последнего поиска внутри кластера
+        private int originX;
+        private int originY;
+        private int localHeight;
+        // Клетки, исключённые из препятствий текущего поиска внутри кластера
+        private int localMaskA = -1;
+        private int localMaskB = -1;
+
+        // Раскрытые и посещённые узлы текущего запроса по всем его поискам
+        private int expanded;
+        private int visited;
+
+        Graph(BoardGeometry geometry, int size) {
+            this.geometry = geometry;
+            this.size = size;
+            this.clustersX = (geometry.width() + size - 1) / size;
+            this.clustersY = (geometry.height() + size - 1) / size;
+            int clusterCount = clustersX * clustersY;
+            this.nodes = new int[clusterCount][];
+            this.partners = new int[clusterCount][][];
+            this.costs = new int[clusterCount][];
+            this.costsReady = new boolean[clusterCount][];
+            this.nodeSlot = new int[geometry.cellCount()];
+            Arrays.fill(nodeSlot, -1);
+            this.mirror = new long[(geometry.cellCount() + 63) >>> 6];
+            this.dirty = new boolean[clusterCount];
+        }
+
+        // --- Обновление по доске ---
+
+        /**
+         * Сравнивает копию с доской по словам и перестраивает затронутые кластеры.
+         * O(1), если это та же доска той же версии; иначе O(V / 64 + d), где d - число изменений.
+         */
+        void sync(OccupancyBitboard board) {
+            if (built && board == syncedBoard && board.version() == syncedVersion) {
+                return;
+            }
+
+            if (!built) {
+                for (int w = 0; w < mirror.length; w++) {
+                    mirror[w] = board.word(w);
+                }
+                Arrays.fill(dirty, true);
+                built = true;
+            } else {
+                for (int w = 0; w < mirror.length; w++) {
+                    long changed = mirror[w] ^ board.word(w);
+                    if (changed == 0) continue;
+                    mirror[w] ^= changed;
+                    while (changed != 0) {
+                        markDirty((w << 6) + Long.numberOfTrailingZeros(changed));
+                        changed &= changed - 1;
+                    }
+                }
+            }
+
+            for (int cluster = 0; cluster < dirty.length; cluster++) {
+                if (dirty[cluster]) {
+                    rebuild(cluster);
+                    dirty[cluster] = false;
+                }
+            }
+            syncedBoard = board;
+            syncedVersion = board.version();
+        }
+
+        // Клетка на границе меняет входы и соседнего кластера
+        private void markDirty(int cell) {
+            int x = cell / geometry.height();
+            int y = cell % geometry.height();
+            int cx = x / size;
+            int cy = y / size;
+            dirty[clusterIndex(cx, cy)] = true;
+            if (x % size == 0 && cx > 0) dirty[clusterIndex(cx - 1, cy)] = true;
+            if (x % size == size - 1 && cx + 1 < clustersX) dirty[clusterIndex(cx + 1, cy)] = true;
+            if (y % size == 0 && cy > 0) dirty[clusterIndex(cx, cy - 1)] = true;
+            if (y % size == size - 1 && cy + 1 < clustersY) dirty[clusterIndex(cx, cy + 1)] = true;
+        }
+
+        private void rebuild(int cluster) {
+            if (nodes[cluster] != null) {
+                for (int cell : nodes[cluster]) {
+                    nodeSlot[cell] = -1;
+                }
+            }
+
+            // Входы на четырёх границах; угловая клетка может иметь переходы в два кластера
+            int cx = cluster / clustersY;
+            int cy = cluster % clustersY;
+            int x0 = cx * size;
+            int y0 = cy * size;
+            int x1 = Math.min(geometry.width(), x0 + size) - 1;
+            int y1 = Math.min(geometry.height(), y0 + size) - 1;
+
+            Map<Integer, List<Integer>> transitions = new LinkedHashMap<>();
+            if (cx > 0) scanBorder(transitions, x0, y0, x0 - 1, y0, 0, 1, y1 - y0 + 1);
+            if (cx + 1 < clustersX) scanBorder(transitions, x1, y0, x1 + 1, y0, 0, 1, y1 - y0 + 1);
+            if (cy > 0) scanBorder(transitions, x0, y0, x0, y0 - 1, 1, 0, x1 - x0 + 1);
+            if (cy + 1 < clustersY) scanBorder(transitions, x0, y1, x0, y1 + 1, 1, 0, x1 - x0 + 1);
+
+            int m = transitions.size();
+            int[] clusterNodes = new int[m];
+            int[][] clusterPartners = new int[m][];
+            int i = 0;
+            for (Map.Entry<Integer, List<Integer>> entry : transitions.entrySet()) {
+                clusterNodes[i] = entry.getKey();
+                clusterPartners[i] = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+                nodeSlot[clusterNodes[i]] = i;
+                i++;
+            }
+
+            nodes[cluster] = clusterNodes;
+            partners[cluster] = clusterPartners;
+            costs[cluster] = new int[m * m];
+            costsReady[cluster] = new boolean[m];
+        }
+
+        // Строка стоимостей от входа slot: Дейкстра внутри кластера при первом обращении
+        private int[] costsFrom(int cluster, int slot) {
+            int[] clusterCosts = costs[cluster];
+            if (!costsReady[cluster][slot]) {
+                int[] clusterNodes = nodes[cluster];
+                int m = clusterNodes.length;
+                beginLocal(-1, -1);
+                searchInCluster(cluster, clusterNodes[slot], -1);
+                for (int to = 0; to < m; to++) {
+                    clusterCosts[slot * m + to] = localCost(clusterNodes[to]);
+                }
+                costsReady[cluster][slot] = true;
+            }
+            return clusterCosts;
+        }
+
+        /**
+         * Проходит границу длиной length от (ownX, ownY) с шагом (stepX, stepY); клетка напротив -
+         * (otherX, otherY) с тем же шагом. Одна и та же граница со стороны обоих кластеров
+         * обходится в одном порядке, поэтому входы получаются парными.
+         */
+        private void scanBorder(Map<Integer, List<Integer>> transitions, int ownX, int ownY,
+                                int otherX, int otherY, int stepX, int stepY, int length) {
+            int runStart = -1;
+            for (int k = 0; k <= length; k++) {
+                boolean open = k < length
+                        && !isOccupied(ownX + k * stepX, ownY + k * stepY)
+                        && !isOccupied(otherX + k * stepX, otherY + k * stepY);
+                if (open && runStart < 0) {
+                    runStart = k;
+                } else if (!open && runStart >= 0) {
+                    int runEnd = k - 1;
+                    if (runEnd - runStart + 1 < LONG_ENTRANCE) {
+                        addTransition(transitions, (runStart + runEnd) / 2, ownX, ownY, otherX, otherY, stepX, stepY);
+                    } else {
+                        addTransition(transitions, runStart, ownX, ownY, otherX, otherY, stepX, stepY);
+                        addTransition(transitions, runEnd, ownX, ownY, otherX, otherY, stepX, stepY);
+                    }
+                    runStart = -1;
+                }
+            }
+        }
+
+        private void addTransition(Map<Integer, List<Integer>> transitions, int k, int ownX, int ownY,
+                                   int otherX, int otherY, int stepX, int stepY) {
+            int own = geometry.cellId(ownX + k * stepX, ownY + k * stepY);
+            int other = geometry.cellId(otherX + k * stepX, otherY + k * stepY);
+            transitions.computeIfAbsent(own, c -> new ArrayList<>(2)).add(other);
+        }
+
+        private boolean isOccupied(int x, int y) {
+            int cell = geometry.cellId(x, y);
+            return (mirror[cell >>> 6] & (1L << cell)) != 0;
+        }
+
+        // --- Запрос ---
+
+        /**
+         * Путь от startCell до targetCell или null, если абстрактный граф его не нашёл.
+         */
+        List<Edge> findPath(int startCell, int targetCell) {
+            int startCluster = clusterOf(startCell);
+            int targetCluster = clusterOf(targetCell);
+            PathSearchWorkspace workspace = PathSearchWorkspace.current();
+            expanded = 0;
+            visited = 0;
+
+            // 1. Подключение старта и цели к входам своих кластеров
+            int[] startCosts = connect(startCluster, startCell, startCell, targetCell);
+            int[] targetCosts = connect(targetCluster, targetCell, startCell, targetCell);
+
+            // Старт и цель в одном кластере: прямой путь внутри него - тоже кандидат
+            int directCost = UNREACHABLE;
+            if (startCluster == targetCluster) {
+                beginLocal(startCell, targetCell);
+                directCost = searchInCluster(startCluster, startCell, targetCell);
+            }
+
+            // 2. A* по абстрактному графу; id узлов - id клеток
+            int[] route = searchAbstract(workspace, startCell, targetCell, startCluster, targetCluster,
+                    startCosts, targetCosts, directCost);
+            expanded += workspace.expandedCount();
+            visited += workspace.visitedCount();
+            if (route == null) {
+                return null;
+            }
+
+            // 3. Уточнение: путь внутри кластера для каждого ребра маршрута
+            int height = geometry.height();
+            List<Edge> path = new ArrayList<>();
+            path.add(new Edge(startCell / height, startCell % height));
+            for (int i = 1; i < route.length; i++) {
+                int from = route[i - 1];
+                int to = route[i];
+                int fromCluster = clusterOf(from);
+                if (fromCluster != clusterOf(to)) {
+                    // Переход через границу - один прямой шаг
+                    path.add(new Edge(to / height, to % height));
+                    continue;
+                }
+
+                beginLocal(startCell, targetCell);
+                if (searchInCluster(fromCluster, from, to) == UNREACHABLE) {
+                    return null;
+                }
+                int[] buffer = local.pathBuffer();
+                int length = 0;
+                for (int cell = toLocal(to), origin = toLocal(from); cell != origin; cell = local.parent(cell)) {
+                    buffer[length++] = cell;
+                }
+                for (int k = length - 1; k >= 0; k--) {
+                    path.add(new Edge(originX + buffer[k] / localHeight, originY + buffer[k] % localHeight));
+                }
+            }
+            return path;
+        }
+
+        // Стоимости от клетки source до входов её кластера (UNREACHABLE - недостижим)
+        private int[] connect(int cluster, int source, int startCell, int targetCell) {
+            int[] clusterNodes = nodes[cluster];
+            beginLocal(startCell, targetCell);
+            searchInCluster(cluster, source, -1);
+
+            int[] result = new int[clusterNodes.length];
+            for (int i = 0; i < clusterNodes.length; i++) {
+                result[i] = localCost(clusterNodes[i]);
+            }
+            return result;
+        }
+
+        private int[] searchAbstract(PathSearchWorkspace workspace, int startCell, int targetCell,
+                                     int startCluster, int targetCluster,
+                                     int[] startCosts, int[] targetCosts, int directCost) {
+            int height = geometry.height();
+            int targetX = targetCell / height;
+            int targetY = targetCell % height;
+
+            workspace.begin(geometry.width(), height);
+            workspace.start(startCell, geometry.heuristic(startCell / height, startCell % height, targetX, targetY));
+
+            while (!workspace.isHeapEmpty()) {
+                int current = workspace.poll();
+                if (current == targetCell) {
+                    return route(workspace, startCell, targetCell);
+                }
+                workspace.close(current);
+                int currentG = workspace.g(current);
+
+                if (current == startCell) {
+                    int[] clusterNodes = nodes[startCluster];
+                    for (int i = 0; i < clusterNodes.length; i++) {
+                        relax(workspace, current, clusterNodes[i], currentG, startCosts[i], targetX, targetY);
+                    }
+                    relax(workspace, current, targetCell, currentG, directCost, targetX, targetY);
+                    continue;
+                }
+
+                int cluster = clusterOf(current);
+                int slot = nodeSlot[current];
+                int[] clusterNodes = nodes[cluster];
+                int[] clusterCosts = costsFrom(cluster, slot);
+                int m = clusterNodes.length;
+                for (int j = 0; j < m; j++) {
+                    if (j != slot) {
+                        relax(workspace, current, clusterNodes[j], currentG, clusterCosts[slot * m + j],
+                                targetX, targetY);
+                    }
+                }
+                for (int partner : partners[cluster][slot]) {
+                    relax(workspace, current, partner, currentG, geometry.straightCost(), targetX, targetY);
+                }
+                if (cluster == targetCluster) {
+                    relax(workspace, current, targetCell, currentG, targetCosts[slot], targetX, targetY);
+                }
+            }
+            return null;
+        }
+
+        private void relax(PathSearchWorkspace workspace, int current, int next, int currentG, int edgeCost,
+                           int targetX, int targetY) {
+            if (edgeCost == UNREACHABLE || workspace.isClosed(next)) return;
+            int tentativeG = currentG + edgeCost;
+            if (tentativeG < workspace.g(next)) {
+                int height = geometry.height();
+                workspace.relax(next, current, tentativeG,
+                        tentativeG + geometry.heuristic(next / height, next % height, targetX, targetY));
+            }
+        }
+
+        private static int[] route(PathSearchWorkspace workspace, int startCell, int targetCell) {
+            int length = 1;
+            for (int cell = targetCell; cell != startCell; cell = workspace.parent(cell)) {
+                length++;
+            }
+            int[] route = new int[length];
+            for (int cell = targetCell, i = length - 1; i >= 0; i--) {
+                route[i] = cell;
+                cell = workspace.parent(cell);
+            }
+            return route;
+        }
+
+        // --- Поиск внутри кластера ---
+
+        // Препятствия - копия доски; старт и цель запроса исключаются
+        private void beginLocal(int maskedCellA, int maskedCellB) {
+            localMaskA = maskedCellA;
+            localMaskB = maskedCellB;
+        }
+
+        private boolean isBlockedLocal(int cell) {
+            return cell != localMaskA && cell != localMaskB && (mirror[cell >>> 6] & (1L << cell)) != 0;
+        }
+
+        private int toLocal(int cell) {
+            int height = geometry.height();
+            return (cell / height - originX) * localHeight + (cell % height - originY);
+        }
+
+        // Стоимость клетки кластера после Дейкстры (UNREACHABLE - недостижима)
+        private int localCost(int cell) {
+            int localCell = toLocal(cell);
+            return local.isClosed(localCell) ? local.g(localCell) : UNREACHABLE;
+        }
+
+        /**
+         * A* (goalCell ≥ 0) или Дейкстра по всему кластеру (goalCell = -1) от startCell,
+         * не выходя за границы кластера. Возвращает стоимость пути до цели или UNREACHABLE.
+         * Клетки пространства {@link #local} - локальные (x - originX) * localHeight + (y - originY).
+         */
+        private int searchInCluster(int cluster, int startCell, int goalCell) {
+            int cost = searchLocal(cluster, startCell, goalCell);
+            expanded += local.expandedCount();
+            visited += local.visitedCount();
+            return cost;
+        }
+
+        private int searchLocal(int cluster, int startCell, int goalCell) {
+            int height = geometry.height();
+            originX = cluster / clustersY * size;
+            originY = cluster % clustersY * size;
+            int localWidth = Math.min(geometry.width() - originX, size);
+            localHeight = Math.min(height - originY, size);
+            int goalX = goalCell >= 0 ? goalCell / height - originX : 0;
+            int goalY = goalCell >= 0 ? goalCell % height - originY : 0;
+            int localGoal = goalCell >= 0 ? toLocal(goalCell) : -1;
+
+            local.begin(localWidth, localHeight);
+            int localStart = toLocal(startCell);
+            local.start(localStart, goalCell >= 0
+                    ? geometry.heuristic(localStart / localHeight, localStart % localHeight, goalX, goalY) : 0);
+            while (!local.isHeapEmpty()) {
+                int current = local.poll();
+                if (current == localGoal) {
+                    return local.g(current);
+                }
+                local.close(current);
+
+                int x = current / localHeight;
+                int y = current % localHeight;
+                int currentG = local.g(current);
+                for (int dir = 0; dir < DX.length; dir++) {
+                    int nx = x + DX[dir];
+                    int ny = y + DY[dir];
+                    if (nx < 0 || nx >= localWidth || ny < 0 || ny >= localHeight) continue;
+
+                    int neighbor = nx * localHeight + ny;
+                    if (local.isClosed(neighbor) || isBlockedLocal(geometry.cellId(originX + nx, originY + ny))) continue;
+
+                    boolean diagonal = DX[dir] != 0 && DY[dir] != 0;
+                    if (diagonal && (isBlockedLocal(geometry.cellId(originX + x, originY + ny))
+                            || isBlockedLocal(geometry.cellId(originX + nx, originY + y)))) {
+                        continue;
+                    }
+
+                    int tentativeG = currentG + geometry.stepCost(diagonal);
+                    if (tentativeG < local.g(neighbor)) {
+                        int h = goalCell >= 0 ? geometry.heuristic(nx, ny, goalX, goalY) : 0;
+                        local.relax(neighbor, current, tentativeG, tentativeG + h);
+                    }
+                }
+            }
+            return UNREACHABLE;
+        }
+
+        // --- Геометрия кластеров ---
+
+        private int clusterIndex(int cx, int cy) {
+            return cx * clustersY + cy;
+        }
+
+        private int clusterOf(int cell) {
+            int height = geometry.height();
+            return clusterIndex(cell / height / size, cell % height / size);
+        }
+    }
+}
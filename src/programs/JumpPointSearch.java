@@ -0,0 +1,135 @@
+package programs;
+
+/**
+ * Jump Point Search для 8-связной сетки с равномерной стоимостью шагов из {@link BoardGeometry}
+ * (стандартно 10/14).
+ * Диагональный шаг разрешён только при свободных обеих ортогональных клетках
+ * (то же правило углов, что и в A* {@link UnitTargetPathFinderImpl}), поэтому
+ * используются правила вынужденных соседей варианта "без срезания углов".
+ * Стоимость найденного пути совпадает с A*, но в кучу попадают только точки прыжка,
+ * а не все симметричные промежуточные клетки.
+ * Алгоритмическая сложность: O(V log J) в худшем случае, где J - число точек прыжка (J ≤ V)
+ */
+final class JumpPointSearch {
+
+    private JumpPointSearch() {
+    }
+
+    /**
+     * Ищет путь; при успехе цепочка родителей в workspace ведёт от цели к старту
+     * через точки прыжка (соседние точки лежат на одной прямой или диагонали).
+     */
+    static boolean search(PathSearchWorkspace workspace, BoardGeometry geometry, int startX, int startY,
+                          int targetX, int targetY) {
+        int height = workspace.height();
+        int targetCell = workspace.cellId(targetX, targetY);
+        workspace.start(workspace.cellId(startX, startY),
+                geometry.heuristic(startX, startY, targetX, targetY));
+
+        while (!workspace.isHeapEmpty()) {
+            int current = workspace.poll();
+            if (current == targetCell) {
+                return true;
+            }
+            workspace.close(current);
+
+            int x = current / height;
+            int y = current % height;
+            int parent = workspace.parent(current);
+
+            if (parent == -1) {
+                // Старт: рассматриваем все 8 направлений
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        if (dx != 0 || dy != 0) {
+                            expand(workspace, geometry, current, x, y, dx, dy, targetX, targetY);
+                        }
+                    }
+                }
+                continue;
+            }
+
+            // Направление прихода в текущую точку
+            int dx = Integer.signum(x - parent / height);
+            int dy = Integer.signum(y - parent % height);
+
+            if (dx != 0 && dy != 0) {
+                // Диагональ: естественные соседи - две ортогонали и диагональ
+                expand(workspace, geometry, current, x, y, 0, dy, targetX, targetY);
+                expand(workspace, geometry, current, x, y, dx, 0, targetX, targetY);
+                expand(workspace, geometry, current, x, y, dx, dy, targetX, targetY);
+            } else if (dx != 0) {
+                // Горизонталь: вперёд, диагонали вперёд и перпендикуляры (вынужденные соседи)
+                expand(workspace, geometry, current, x, y, dx, 0, targetX, targetY);
+                expand(workspace, geometry, current, x, y, dx, 1, targetX, targetY);
+                expand(workspace, geometry, current, x, y, dx, -1, targetX, targetY);
+                expand(workspace, geometry, current, x, y, 0, 1, targetX, targetY);
+                expand(workspace, geometry, current, x, y, 0, -1, targetX, targetY);
+            } else {
+                // Вертикаль: симметрично горизонтали
+                expand(workspace, geometry, current, x, y, 0, dy, targetX, targetY);
+                expand(workspace, geometry, current, x, y, 1, dy, targetX, targetY);
+                expand(workspace, geometry, current, x, y, -1, dy, targetX, targetY);
+                expand(workspace, geometry, current, x, y, 1, 0, targetX, targetY);
+                expand(workspace, geometry, current, x, y, -1, 0, targetX, targetY);
+            }
+        }
+
+        return false;
+    }
+
+    private static void expand(PathSearchWorkspace workspace, BoardGeometry geometry, int current, int x, int y,
+                               int dx, int dy, int targetX, int targetY) {
+        int jumpPoint = jump(workspace, x, y, dx, dy, targetX, targetY);
+        if (jumpPoint == -1 || workspace.isClosed(jumpPoint)) return;
+
+        int jx = jumpPoint / workspace.height();
+        int jy = jumpPoint % workspace.height();
+        int tentativeG = workspace.g(current) + geometry.octile(Math.abs(jx - x), Math.abs(jy - y));
+
+        if (tentativeG < workspace.g(jumpPoint)) {
+            workspace.relax(jumpPoint, current, tentativeG,
+                    tentativeG + geometry.heuristic(jx, jy, targetX, targetY));
+        }
+    }
+
+    /**
+     * Прыжок из (x, y) в направлении (dx, dy): возвращает id точки прыжка или -1.
+     */
+    private static int jump(PathSearchWorkspace workspace, int x, int y, int dx, int dy,
+                            int targetX, int targetY) {
+        boolean diagonal = dx != 0 && dy != 0;
+
+        while (true) {
+            int nx = x + dx;
+            int ny = y + dy;
+
+            if (!workspace.isWalkable(nx, ny)) return -1;
+            // Правило углов: диагональный шаг требует свободных обеих ортогональных клеток
+            if (diagonal && (!workspace.isWalkable(x, ny) || !workspace.isWalkable(nx, y))) return -1;
+
+            x = nx;
+            y = ny;
+
+            if (x == targetX && y == targetY) return workspace.cellId(x, y);
+
+            if (diagonal) {
+                // Диагональная точка прыжка, если из неё достижима точка по ортогонали
+                if (jump(workspace, x, y, dx, 0, targetX, targetY) != -1
+                        || jump(workspace, x, y, 0, dy, targetX, targetY) != -1) {
+                    return workspace.cellId(x, y);
+                }
+            } else if (dx != 0) {
+                if ((workspace.isWalkable(x, y - 1) && !workspace.isWalkable(x - dx, y - 1))
+                        || (workspace.isWalkable(x, y + 1) && !workspace.isWalkable(x - dx, y + 1))) {
+                    return workspace.cellId(x, y);
+                }
+            } else {
+                if ((workspace.isWalkable(x - 1, y) && !workspace.isWalkable(x - 1, y - dy))
+                        || (workspace.isWalkable(x + 1, y) && !workspace.isWalkable(x + 1, y - dy))) {
+                    return workspace.cellId(x, y);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package programs;
+
+/**
+ * Поведение асинхронного лога боя ({@link AsyncBattleLog}) при заполненном кольцевом буфере.
+ */
+public enum LogBackpressure {
+
+    // Поток боя ждёт, пока потребитель освободит место: ни одно событие не теряется
+    BLOCK,
+
+    // Событие отбрасывается и учитывается в счётчике потерь
+    DROP,
+
+    // Рядовые события (атаки, перемещения, статистика раундов) сворачиваются в одну строку
+    // "пропущено N событий"; начало и конец боя, гибель юнитов и прерывания ждут места
+    COALESCE
+}
@@ -0,0 +1,175 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Оценка вероятности победы армии игрока методом Монте-Карло.
+ * Каждая симуляция получает собственную глубокую копию обеих армий ({@link ArmyCopier})
+ * и проводится безголово ({@link HeadlessBattleRunner}). Симуляции раскладываются по
+ * ForkJoinPool делением диапазона пополам, частичные итоги сливаются без блокировок.
+ * Поиск пути и доска занятости привязаны к потоку, поэтому симуляции не мешают друг другу.
+ * Алгоритмическая сложность: O(N × B / P), где N - число симуляций, B - стоимость одного боя,
+ * P - параллелизм пула
+ */
+public class MonteCarloBattleEstimator {
+
+    // Симуляций в одной листовой задаче: достаточно, чтобы накладные расходы FJ были незаметны
+    private static final int LEAF_SIZE = 16;
+
+    private final ForkJoinPool pool;
+    private final ArmyCopier copier;
+    private final HeadlessBattleRunner runner = new HeadlessBattleRunner();
+
+    public MonteCarloBattleEstimator() {
+        this(ForkJoinPool.commonPool(), new ArmyCopier());
+    }
+
+    public MonteCarloBattleEstimator(ForkJoinPool pool, ArmyCopier copier) {
+        this.pool = pool;
+        this.copier = copier;
+    }
+
+    /**
+     * Проводит simulations независимых боёв. Исходные армии не изменяются.
+     */
+    public MonteCarloEstimate estimate(Army playerArmy, Army computerArmy, int simulations) {
+        if (playerArmy == null || computerArmy == null) {
+            throw new IllegalArgumentException("Армии не могут быть null");
+        }
+        if (simulations <= 0) {
+            throw new IllegalArgumentException("Число симуляций должно быть положительным");
+        }
+
+        int maxPlayerUnits = playerArmy.getUnits().size();
+        int maxComputerUnits = computerArmy.getUnits().size();
+
+        Tally tally = pool.invoke(new SimulationTask(playerArmy, computerArmy, 0, simulations,
+                maxPlayerUnits, maxComputerUnits));
+        return tally.toEstimate();
+    }
+
+    private class SimulationTask extends RecursiveTask<Tally> {
+        private static final long serialVersionUID = 1L;
+
+        private final Army playerArmy;
+        private final Army computerArmy;
+        private final int from;
+        private final int to;
+        private final int maxPlayerUnits;
+        private final int maxComputerUnits;
+
+        SimulationTask(Army playerArmy, Army computerArmy, int from, int to,
+                       int maxPlayerUnits, int maxComputerUnits) {
+            this.playerArmy = playerArmy;
+            this.computerArmy = computerArmy;
+            this.from = from;
+            this.to = to;
+            this.maxPlayerUnits = maxPlayerUnits;
+            this.maxComputerUnits = maxComputerUnits;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from <= LEAF_SIZE) {
+                return simulateRange();
+            }
+
+            int middle = (from + to) >>> 1;
+            SimulationTask left = new SimulationTask(playerArmy, computerArmy, from, middle,
+                    maxPlayerUnits, maxComputerUnits);
+            SimulationTask right = new SimulationTask(playerArmy, computerArmy, middle, to,
+                    maxPlayerUnits, maxComputerUnits);
+            left.fork();
+            Tally rightTally = right.compute();
+            return left.join().merge(rightTally);
+        }
+
+        private Tally simulateRange() {
+            Tally tally = new Tally(maxPlayerUnits, maxComputerUnits);
+            for (int i = from; i < to; i++) {
+                // Исходные армии только читаются: каждая симуляция идёт на своей копии
+                Army[] armies = copier.copyBattle(playerArmy, computerArmy);
+                try {
+                    tally.add(runner.run(armies[0], armies[1]));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Оценка Монте-Карло прервана", e);
+                }
+            }
+            return tally;
+        }
+    }
+
+    /**
+     * Частичные итоги серии симуляций; сливаются при объединении задач.
+     */
+    private static final class Tally {
+        int simulations;
+        int wins;
+        int draws;
+        int losses;
+        final int[] playerSurvivors;
+        final int[] computerSurvivors;
+        // Сумма и сумма квадратов раундов для среднего и дисперсии
+        long roundsSum;
+        long roundsSquaredSum;
+        int minRounds = Integer.MAX_VALUE;
+        int maxRounds;
+
+        Tally(int maxPlayerUnits, int maxComputerUnits) {
+            this.playerSurvivors = new int[maxPlayerUnits + 1];
+            this.computerSurvivors = new int[maxComputerUnits + 1];
+        }
+
+        void add(BattleResult result) {
+            simulations++;
+            if (result.isPlayerWin()) {
+                wins++;
+            } else if (result.isComputerWin()) {
+                losses++;
+            } else {
+                draws++;
+            }
+
+            playerSurvivors[result.getPlayerSurvivors()]++;
+            computerSurvivors[result.getComputerSurvivors()]++;
+
+            int rounds = result.getRounds();
+            roundsSum += rounds;
+            roundsSquaredSum += (long) rounds * rounds;
+            minRounds = Math.min(minRounds, rounds);
+            maxRounds = Math.max(maxRounds, rounds);
+        }
+
+        Tally merge(Tally other) {
+            simulations += other.simulations;
+            wins += other.wins;
+            draws += other.draws;
+            losses += other.losses;
+            for (int k = 0; k < playerSurvivors.length; k++) {
+                playerSurvivors[k] += other.playerSurvivors[k];
+            }
+            for (int k = 0; k < computerSurvivors.length; k++) {
+                computerSurvivors[k] += other.computerSurvivors[k];
+            }
+            roundsSum += other.roundsSum;
+            roundsSquaredSum += other.roundsSquaredSum;
+            minRounds = Math.min(minRounds, other.minRounds);
+            maxRounds = Math.max(maxRounds, other.maxRounds);
+            return this;
+        }
+
+        MonteCarloEstimate toEstimate() {
+            double mean = (double) roundsSum / simulations;
+            double variance = simulations > 1
+                    ? (roundsSquaredSum - simulations * mean * mean) / (simulations - 1)
+                    : 0;
+            return new MonteCarloEstimate(simulations, wins, draws, losses,
+                    playerSurvivors, computerSurvivors,
+                    mean, Math.sqrt(Math.max(0, variance)), minRounds, maxRounds);
+        }
+    }
+}
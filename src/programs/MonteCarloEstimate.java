@@ -0,0 +1,151 @@
+package programs;
+
+/**
+ * Результат оценки исхода боя методом Монте-Карло (с точки зрения армии игрока).
+ * Доли побед/ничьих/поражений сопровождаются 95% доверительными интервалами Уилсона,
+ * среднее число раундов - 95% интервалом по нормальному приближению.
+ * Ничьей считается и взаимное уничтожение, и бой, остановленный по лимиту раундов.
+ */
+public final class MonteCarloEstimate {
+
+    // z-квантиль для 95% доверительного интервала
+    private static final double Z_95 = 1.959964;
+
+    private final int simulations;
+    private final int wins;
+    private final int draws;
+    private final int losses;
+    private final int[] playerSurvivorHistogram;
+    private final int[] computerSurvivorHistogram;
+    private final double meanRounds;
+    private final double roundsStdDev;
+    private final int minRounds;
+    private final int maxRounds;
+
+    MonteCarloEstimate(int simulations, int wins, int draws, int losses,
+                       int[] playerSurvivorHistogram, int[] computerSurvivorHistogram,
+                       double meanRounds, double roundsStdDev, int minRounds, int maxRounds) {
+        this.simulations = simulations;
+        this.wins = wins;
+        this.draws = draws;
+        this.losses = losses;
+        this.playerSurvivorHistogram = playerSurvivorHistogram;
+        this.computerSurvivorHistogram = computerSurvivorHistogram;
+        this.meanRounds = meanRounds;
+        this.roundsStdDev = roundsStdDev;
+        this.minRounds = minRounds;
+        this.maxRounds = maxRounds;
+    }
+
+    public int getSimulations() {
+        return simulations;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getLosses() {
+        return losses;
+    }
+
+    public double getWinRate() {
+        return rate(wins);
+    }
+
+    public double getDrawRate() {
+        return rate(draws);
+    }
+
+    public double getLossRate() {
+        return rate(losses);
+    }
+
+    // Доверительные интервалы: [нижняя граница, верхняя граница]
+    public double[] getWinRateInterval() {
+        return wilson(wins);
+    }
+
+    public double[] getDrawRateInterval() {
+        return wilson(draws);
+    }
+
+    public double[] getLossRateInterval() {
+        return wilson(losses);
+    }
+
+    /**
+     * Распределение выживших юнитов игрока: элемент k - число боёв с k выжившими.
+     */
+    public int[] getPlayerSurvivorHistogram() {
+        return playerSurvivorHistogram.clone();
+    }
+
+    public int[] getComputerSurvivorHistogram() {
+        return computerSurvivorHistogram.clone();
+    }
+
+    public double getMeanPlayerSurvivors() {
+        return mean(playerSurvivorHistogram);
+    }
+
+    public double getMeanComputerSurvivors() {
+        return mean(computerSurvivorHistogram);
+    }
+
+    public double getMeanRounds() {
+        return meanRounds;
+    }
+
+    public double getRoundsStdDev() {
+        return roundsStdDev;
+    }
+
+    public double[] getMeanRoundsInterval() {
+        double margin = simulations > 0 ? Z_95 * roundsStdDev / Math.sqrt(simulations) : 0;
+        return new double[]{meanRounds - margin, meanRounds + margin};
+    }
+
+    public int getMinRounds() {
+        return minRounds;
+    }
+
+    public int getMaxRounds() {
+        return maxRounds;
+    }
+
+    private double rate(int count) {
+        return simulations > 0 ? (double) count / simulations : 0;
+    }
+
+    private double[] wilson(int count) {
+        if (simulations == 0) return new double[]{0, 1};
+
+        double n = simulations;
+        double p = count / n;
+        double z2 = Z_95 * Z_95;
+        double denominator = 1 + z2 / n;
+        double center = (p + z2 / (2 * n)) / denominator;
+        double margin = Z_95 * Math.sqrt(p * (1 - p) / n + z2 / (4 * n * n)) / denominator;
+        return new double[]{Math.max(0, center - margin), Math.min(1, center + margin)};
+    }
+
+    private double mean(int[] histogram) {
+        if (simulations == 0) return 0;
+        long total = 0;
+        for (int k = 0; k < histogram.length; k++) {
+            total += (long) k * histogram[k];
+        }
+        return (double) total / simulations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MonteCarloEstimate{n=%d, win=%.4f, draw=%.4f, loss=%.4f, rounds=%.2f±%.2f}",
+                simulations, getWinRate(), getDrawRate(), getLossRate(), meanRounds, roundsStdDev);
+    }
+}
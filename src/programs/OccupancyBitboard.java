@@ -0,0 +1,131 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.util.List;
+
+/**
+ * Битовая доска занятости клеток поля, которую бой поддерживает инкрементально.
+ * Клетка (x, y) хранится битом с номером x * height + y: поле 27 × 21 занимает 9 long.
+ * Между двумя ходами меняется максимум одна-две клетки (гибель цели, перемещение атакующего),
+ * поэтому вместо перестроения карты препятствий по списку юнитов на каждый запрос пути
+ * бой обновляет доску за O(1) на событие, а поиск пути читает её без копирования.
+ * Каждое изменение увеличивает версию доски - по ней можно инвалидировать кэши.
+ * Доска привязывается к потоку боя через {@link #bind(OccupancyBitboard)}: программы юнитов
+ * вызывают поиск пути синхронно в том же потоке.
+ */
+public final class OccupancyBitboard {
+
+    private static final ThreadLocal<OccupancyBitboard> BOUND = new ThreadLocal<>();
+
+    private final int width;
+    private final int height;
+    private final long[] words;
+    // Число юнитов в клетке: бит снимается, только когда клетка действительно освободилась
+    private final short[] counts;
+    private int version;
+
+    public OccupancyBitboard(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Размеры поля должны быть положительными");
+        }
+        this.width = width;
+        this.height = height;
+        this.words = new long[(width * height + 63) >>> 6];
+        this.counts = new short[width * height];
+    }
+
+    /**
+     * Строит доску по живым юнитам: O(n), выполняется один раз на бой.
+     */
+    public static OccupancyBitboard fromUnits(List<Unit> units, int width, int height) {
+        OccupancyBitboard board = new OccupancyBitboard(width, height);
+        for (Unit unit : units) {
+            if (unit != null && unit.isAlive()) {
+                board.occupy(unit.getxCoordinate(), unit.getyCoordinate());
+            }
+        }
+        return board;
+    }
+
+    // --- Привязка к потоку боя ---
+
+    /**
+     * Привязывает доску к текущему потоку и возвращает предыдущую привязку (для восстановления).
+     */
+    public static OccupancyBitboard bind(OccupancyBitboard board) {
+        OccupancyBitboard previous = BOUND.get();
+        if (board == null) {
+            BOUND.remove();
+        } else {
+            BOUND.set(board);
+        }
+        return previous;
+    }
+
+    public static OccupancyBitboard bound() {
+        return BOUND.get();
+    }
+
+    // --- Чтение ---
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public boolean isOccupied(int x, int y) {
+        return isValid(x, y) && isOccupied(x * height + y);
+    }
+
+    boolean isOccupied(int cell) {
+        return (words[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    // Слова битовой доски: по ним сравнивают копию доски с текущей за O(V / 64)
+    int wordCount() {
+        return words.length;
+    }
+
+    long word(int index) {
+        return words[index];
+    }
+
+    // --- Изменения (O(1)) ---
+
+    public void occupy(int x, int y) {
+        if (!isValid(x, y)) return;
+        int cell = x * height + y;
+        if (counts[cell]++ == 0) {
+            words[cell >>> 6] |= 1L << cell;
+        }
+        version++;
+    }
+
+    public void vacate(int x, int y) {
+        if (!isValid(x, y)) return;
+        int cell = x * height + y;
+        if (counts[cell] == 0) return;
+        if (--counts[cell] == 0) {
+            words[cell >>> 6] &= ~(1L << cell);
+        }
+        version++;
+    }
+
+    public void move(int fromX, int fromY, int toX, int toY) {
+        if (fromX == toX && fromY == toY) return;
+        vacate(fromX, fromY);
+        occupy(toX, toY);
+    }
+
+    private boolean isValid(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+}
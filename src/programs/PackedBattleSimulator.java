@@ -0,0 +1,252 @@
+package programs;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Бой на упакованном состоянии ({@link PackedBattleState}) без вызова программ юнитов.
+ * Правила повторяют программы игры:
+ * - лучник бьёт случайного живого врага;
+ * - юнит ближнего боя выбирает случайную открытую цель в трёх ближних к нему рядах врага
+ *   (как {@link SuitableForAttackUnitsFinderImpl}) и атакует, если к ней есть путь
+ *   (как {@link UnitTargetPathFinderImpl}), после чего возвращается на свою клетку;
+ * - урон берётся из {@link DamageTable} по типам (без бонусов - базовая атака),
+ *   юнит с здоровьем ≤ 0 погибает.
+ * Цикл раундов тот же, что у {@link BattleEngine}. Слушателю передаются исходные юниты,
+ * предварительно синхронизированные с состоянием.
+ * Алгоритмическая сложность: O(n log n + r × n × (n + P)), где P - стоимость проверки пути
+ */
+public class PackedBattleSimulator {
+
+    // Ряды, в которых ищут цели юниты ближнего боя каждой стороны
+    private static final int ROWS = 3;
+
+    private final BattleListener listener;
+    private final BattlePacer pacer;
+    private RandomGenerator random;
+    private boolean applyBonuses;
+    private DamageTable damageTable;
+    private BoardGeometry geometry = BoardGeometry.DEFAULT;
+
+    public PackedBattleSimulator() {
+        this(BattleListener.NONE, BattlePacer.NONE);
+    }
+
+    public PackedBattleSimulator(BattleListener listener, BattlePacer pacer) {
+        this.listener = listener != null ? listener : BattleListener.NONE;
+        this.pacer = pacer != null ? pacer : BattlePacer.NONE;
+    }
+
+    // null - ThreadLocalRandom потока боя
+    public void setRandom(RandomGenerator random) {
+        this.random = random;
+    }
+
+    // Программы игры бонусы не учитывают, поэтому по умолчанию они выключены
+    public void setApplyBonuses(boolean applyBonuses) {
+        this.applyBonuses = applyBonuses;
+    }
+
+    /**
+     * Общая таблица урона (например, {@link DamageTable#fromTemplates} по шаблонам генератора).
+     * null - таблица строится по состоянию в начале каждого боя. Типы, которых нет в таблице,
+     * наносят урон, равный базовой атаке.
+     */
+    public void setDamageTable(DamageTable damageTable) {
+        this.damageTable = damageTable;
+    }
+
+    public void setGeometry(BoardGeometry geometry) {
+        this.geometry = geometry != null ? geometry : BoardGeometry.DEFAULT;
+    }
+
+    public BattleResult run(PackedBattleState state) throws InterruptedException {
+        return run(state, 1, BattleEngine.MAX_ROUNDS);
+    }
+
+    /**
+     * Раунды firstRound..lastRound: бой до раунда k - run(state, 1, k), затем ветки из
+     * снимка state.copy() - run(snapshot.copy(), k + 1, BattleEngine.MAX_ROUNDS).
+     * Если бой не закончился к lastRound, результат - ROUND_LIMIT с номером lastRound.
+     */
+    public BattleResult run(PackedBattleState state, int firstRound, int lastRound) throws InterruptedException {
+        if (state == null) {
+            throw new IllegalArgumentException("Состояние боя не может быть null");
+        }
+        if (firstRound < 1 || lastRound > BattleEngine.MAX_ROUNDS) {
+            throw new IllegalArgumentException("Раунды должны быть в диапазоне от 1 до " + BattleEngine.MAX_ROUNDS);
+        }
+        return new Battle(state, random != null ? random : ThreadLocalRandom.current(), geometry)
+                .run(firstRound, lastRound);
+    }
+
+    /**
+     * Один бой: рабочие массивы и доска занятости.
+     */
+    private final class Battle {
+        private final PackedBattleState state;
+        private final RandomGenerator random;
+        private final BoardGeometry geometry;
+        private final OccupancyBitboard board;
+        private final int[] candidates;
+        // Занятые Y-позиции рядов целей: слова по 64 клетки высоты
+        private final long[][] rowMasks;
+        private final int[] aliveBySide = new int[2];
+        private final DamageTable table;
+        // Номер типа состояния → номер типа таблицы (-1 - нет в таблице)
+        private final int[] tableType;
+        private int turns;
+
+        Battle(PackedBattleState state, RandomGenerator random, BoardGeometry geometry) {
+            this.state = state;
+            this.random = random;
+            this.geometry = geometry;
+            this.rowMasks = new long[ROWS][(geometry.height() + 63) >>> 6];
+            this.table = damageTable != null ? damageTable : DamageTable.of(state, applyBonuses);
+            this.tableType = new int[state.typeNames.length];
+            for (int t = 0; t < tableType.length; t++) {
+                tableType[t] = table.typeIndex(state.typeNames[t]);
+            }
+            this.board = new OccupancyBitboard(geometry.width(), geometry.height());
+            this.candidates = new int[state.size()];
+            for (int i = 0; i < state.size(); i++) {
+                if (!state.alive[i]) continue;
+                board.occupy(state.x[i], state.y[i]);
+                aliveBySide[state.side[i]]++;
+            }
+        }
+
+        BattleResult run(int firstRound, int lastRound) throws InterruptedException {
+            listener.onBattleStart();
+
+            for (int round = firstRound; round <= lastRound; round++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    listener.onInterrupted(round, false);
+                    return finish(round, BattleResult.EndReason.INTERRUPTED);
+                }
+
+                int aliveUnits = aliveBySide[PackedBattleState.PLAYER] + aliveBySide[PackedBattleState.COMPUTER];
+                if (aliveUnits == 0) {
+                    return finish(round, BattleResult.EndReason.NO_UNITS);
+                }
+                if (aliveBySide[PackedBattleState.PLAYER] == 0 || aliveBySide[PackedBattleState.COMPUTER] == 0) {
+                    return finish(round, BattleResult.EndReason.ARMY_DESTROYED);
+                }
+
+                listener.onRoundStart(round, aliveUnits);
+
+                for (int attacker : state.turnOrder) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        listener.onInterrupted(round, true);
+                        return finish(round, BattleResult.EndReason.INTERRUPTED);
+                    }
+                    // Павшие в этом раунде пропускаются
+                    if (!state.alive[attacker]) continue;
+
+                    turn(attacker);
+                }
+
+                listener.onRoundEnd(round, aliveBySide[PackedBattleState.PLAYER],
+                        aliveBySide[PackedBattleState.COMPUTER]);
+                if (aliveBySide[PackedBattleState.PLAYER] == 0 || aliveBySide[PackedBattleState.COMPUTER] == 0) {
+                    return finish(round, BattleResult.EndReason.ARMY_DESTROYED);
+                }
+            }
+
+            return finish(lastRound, BattleResult.EndReason.ROUND_LIMIT);
+        }
+
+        private void turn(int attacker) throws InterruptedException {
+            int target = state.ranged[attacker] ? chooseRangedTarget(attacker) : chooseMeleeTarget(attacker);
+            turns++;
+
+            if (target < 0) {
+                listener.onNoTarget(state.unit(attacker));
+            } else {
+                state.health[target] -= damage(attacker, target);
+                if (state.health[target] <= 0) {
+                    state.alive[target] = false;
+                    aliveBySide[state.side[target]]--;
+                    board.vacate(state.x[target], state.y[target]);
+                }
+
+                if (listener != BattleListener.NONE) {
+                    state.sync(target);
+                    listener.onAttack(state.unit(attacker), state.unit(target));
+                    if (!state.alive[target]) {
+                        listener.onDeath(state.unit(target));
+                    }
+                }
+            }
+
+            pacer.pause();
+        }
+
+        private int damage(int attacker, int target) {
+            int a = tableType[state.type[attacker]];
+            int d = tableType[state.type[target]];
+            return a >= 0 && d >= 0 ? table.damage(a, d) : state.attack[attacker];
+        }
+
+        // Лучник: случайный живой враг
+        private int chooseRangedTarget(int attacker) {
+            byte enemy = enemyOf(attacker);
+            int count = 0;
+            for (int i = 0; i < state.size(); i++) {
+                if (state.alive[i] && state.side[i] == enemy) candidates[count++] = i;
+            }
+            return count == 0 ? -1 : candidates[random.nextInt(count)];
+        }
+
+        // Ближний бой: случайная открытая цель в трёх рядах врага, если до неё есть путь
+        private int chooseMeleeTarget(int attacker) {
+            byte enemy = enemyOf(attacker);
+            // Компьютер атакует ряды игрока 24-26 (закрытость слева),
+            // игрок - ряды компьютера 0-2 (закрытость справа)
+            boolean leftArmyTarget = enemy == PackedBattleState.COMPUTER;
+            int firstRow = leftArmyTarget ? 0 : geometry.width() - ROWS;
+            int height = geometry.height();
+
+            long[][] masks = rowMasks;
+            for (long[] mask : masks) {
+                Arrays.fill(mask, 0);
+            }
+            for (int i = 0; i < state.size(); i++) {
+                int row = state.x[i] - firstRow;
+                int y = state.y[i];
+                if (state.alive[i] && state.side[i] == enemy && row >= 0 && row < ROWS && y >= 0 && y < height) {
+                    masks[row][y >>> 6] |= 1L << y;
+                }
+            }
+
+            int count = 0;
+            for (int i = 0; i < state.size(); i++) {
+                int row = state.x[i] - firstRow;
+                int y = state.y[i];
+                if (!state.alive[i] || state.side[i] != enemy || row < 0 || row >= ROWS) continue;
+                if (y < 0 || y >= height) continue;
+
+                int neighbour = leftArmyTarget ? row + 1 : row - 1;
+                boolean covered = neighbour >= 0 && neighbour < ROWS && (masks[neighbour][y >>> 6] & (1L << y)) != 0;
+                if (!covered) candidates[count++] = i;
+            }
+            if (count == 0) return -1;
+
+            int target = candidates[random.nextInt(count)];
+            return UnitTargetPathFinderImpl.hasPath(geometry, board, state.x[attacker], state.y[attacker],
+                    state.x[target], state.y[target]) ? target : -1;
+        }
+
+        private byte enemyOf(int unit) {
+            return state.side[unit] == PackedBattleState.PLAYER ? PackedBattleState.COMPUTER : PackedBattleState.PLAYER;
+        }
+
+        private BattleResult finish(int round, BattleResult.EndReason endReason) {
+            BattleResult result = new BattleResult(aliveBySide[PackedBattleState.PLAYER],
+                    aliveBySide[PackedBattleState.COMPUTER], round, turns, endReason);
+            listener.onBattleEnd(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package programs;
+
+import com.battle.heroes.army.Army;
+import com.battle.heroes.army.Unit;
+import com.battle.heroes.army.programs.Program;
+import com.battle.heroes.army.programs.computer.ComputerArcherProgram;
+import com.battle.heroes.army.programs.user.UserArcherProgram;
+
+import java.util.*;
+
+/**
+ * Состояние боя в виде структуры массивов: юнит - это индекс i в параллельных массивах
+ * здоровья, атаки, координат и признака жизни. Типы юнитов пронумерованы, бонусы хранятся
+ * матрицами [тип атакующего][тип защищающегося] вместо Map&lt;String, Double&gt; у каждого юнита.
+ * Объекты Unit нужны только на границе: при упаковке ({@link #of(Army, Army)}) и при
+ * записи результата обратно ({@link #applyTo()}).
+ * Индексы: сначала юниты игрока, затем компьютера, в порядке списков армий.
+ * Алгоритмическая сложность: O(n log n + t²) на упаковку, где t - число типов
+ */
+public final class PackedBattleState {
+
+    static final byte PLAYER = 0;
+    static final byte COMPUTER = 1;
+
+    // Изменяемое состояние боя
+    final int[] health;
+    final int[] x;
+    final int[] y;
+    final boolean[] alive;
+
+    // Неизменные в бою характеристики (общие у копий)
+    final int[] attack;
+    final int[] type;
+    final byte[] side;
+    final boolean[] ranged;
+    final String[] typeNames;
+    // Бонус атаки типа a против типа d и бонус защиты типа d против типа a (по умолчанию 1.0)
+    final double[][] attackBonus;
+    final double[][] defenceBonus;
+    // Порядок ходов: по убыванию атаки, при равенстве - по имени
+    final int[] turnOrder;
+
+    // Исходные юниты - только для адаптеров и слушателя
+    private final Unit[] units;
+
+    private PackedBattleState(Unit[] units, int[] health, int[] x, int[] y, boolean[] alive,
+                              int[] attack, int[] type, byte[] side, boolean[] ranged, String[] typeNames,
+                              double[][] attackBonus, double[][] defenceBonus, int[] turnOrder) {
+        this.units = units;
+        this.health = health;
+        this.x = x;
+        this.y = y;
+        this.alive = alive;
+        this.attack = attack;
+        this.type = type;
+        this.side = side;
+        this.ranged = ranged;
+        this.typeNames = typeNames;
+        this.attackBonus = attackBonus;
+        this.defenceBonus = defenceBonus;
+        this.turnOrder = turnOrder;
+    }
+
+    /**
+     * Упаковывает пару армий. Юниты не изменяются до вызова {@link #applyTo()}.
+     */
+    public static PackedBattleState of(Army playerArmy, Army computerArmy) {
+        if (playerArmy == null || computerArmy == null) {
+            throw new IllegalArgumentException("Армии не могут быть null");
+        }
+
+        List<Unit> all = new ArrayList<>();
+        List<Byte> sides = new ArrayList<>();
+        for (Unit unit : playerArmy.getUnits()) {
+            if (unit == null) continue;
+            all.add(unit);
+            sides.add(PLAYER);
+        }
+        for (Unit unit : computerArmy.getUnits()) {
+            if (unit == null) continue;
+            all.add(unit);
+            sides.add(COMPUTER);
+        }
+
+        int n = all.size();
+        Unit[] units = all.toArray(new Unit[0]);
+        int[] health = new int[n];
+        int[] x = new int[n];
+        int[] y = new int[n];
+        boolean[] alive = new boolean[n];
+        int[] attack = new int[n];
+        int[] type = new int[n];
+        byte[] side = new byte[n];
+        boolean[] ranged = new boolean[n];
+
+        // Нумерация типов в порядке первого появления
+        Map<String, Integer> typeIds = new LinkedHashMap<>();
+        List<Unit> typeSamples = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Unit unit = units[i];
+            health[i] = unit.getHealth();
+            x[i] = unit.getxCoordinate();
+            y[i] = unit.getyCoordinate();
+            alive[i] = unit.isAlive();
+            attack[i] = unit.getBaseAttack();
+            side[i] = sides.get(i);
+            ranged[i] = isRanged(unit);
+
+            Integer id = typeIds.get(unit.getUnitType());
+            if (id == null) {
+                id = typeIds.size();
+                typeIds.put(unit.getUnitType(), id);
+                typeSamples.add(unit);
+            }
+            type[i] = id;
+        }
+
+        // Бонусы берутся у первого юнита типа: копии одного шаблона их не различают
+        String[] typeNames = typeIds.keySet().toArray(new String[0]);
+        int types = typeNames.length;
+        double[][] attackBonus = new double[types][types];
+        double[][] defenceBonus = new double[types][types];
+        for (int a = 0; a < types; a++) {
+            Map<String, Double> attackBonuses = typeSamples.get(a).getAttackBonuses();
+            Map<String, Double> defenceBonuses = typeSamples.get(a).getDefenceBonuses();
+            for (int d = 0; d < types; d++) {
+                attackBonus[a][d] = DamageTable.bonus(attackBonuses, typeNames[d]);
+                defenceBonus[a][d] = DamageTable.bonus(defenceBonuses, typeNames[d]);
+            }
+        }
+
+        return new PackedBattleState(units, health, x, y, alive, attack, type, side, ranged, typeNames,
+                attackBonus, defenceBonus, sortTurnOrder(units));
+    }
+
+    private static boolean isRanged(Unit unit) {
+        Program program = unit.getProgram();
+        if (program != null) {
+            return program instanceof ComputerArcherProgram || program instanceof UserArcherProgram;
+        }
+        // Армия без программ (например, из GeneratePresetImpl): стрелки - лучники
+        return "Archer".equals(unit.getUnitType());
+    }
+
+    private static int[] sortTurnOrder(Unit[] units) {
+        Integer[] order = new Integer[units.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Тот же порядок, что у TurnOrder: атака по убыванию, затем имя
+        Arrays.sort(order, (i1, i2) -> {
+            int attackDiff = Integer.compare(units[i2].getBaseAttack(), units[i1].getBaseAttack());
+            if (attackDiff != 0) return attackDiff;
+            return units[i1].getName().compareTo(units[i2].getName());
+        });
+
+        int[] result = new int[order.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Независимая копия изменяемой части состояния (для повторных симуляций одной позиции).
+     * Копия не связана с юнитами: {@link #applyTo()} у неё записывает в те же исходные юниты.
+     */
+    public PackedBattleState copy() {
+        return new PackedBattleState(units, health.clone(), x.clone(), y.clone(), alive.clone(),
+                attack, type, side, ranged, typeNames, attackBonus, defenceBonus, turnOrder);
+    }
+
+    /**
+     * Записывает здоровье, координаты и признак жизни обратно в исходные юниты.
+     */
+    public void applyTo() {
+        for (int i = 0; i < units.length; i++) {
+            sync(i);
+        }
+    }
+
+    /**
+     * Таблица урона по типам этого боя (для {@link PackedBattleSimulator#setDamageTable}).
+     */
+    public DamageTable getDamageTable(boolean applyBonuses) {
+        return DamageTable.of(this, applyBonuses);
+    }
+
+    void sync(int i) {
+        Unit unit = units[i];
+        unit.setHealth(health[i]);
+        unit.setxCoordinate(x[i]);
+        unit.setyCoordinate(y[i]);
+        unit.setAlive(alive[i]);
+    }
+
+    Unit unit(int i) {
+        return units[i];
+    }
+
+    public int size() {
+        return units.length;
+    }
+
+    public int getHealth(int i) {
+        return health[i];
+    }
+
+    public boolean isAlive(int i) {
+        return alive[i];
+    }
+
+    public int getX(int i) {
+        return x[i];
+    }
+
+    public int getY(int i) {
+        return y[i];
+    }
+
+    public int countAlive(boolean player) {
+        byte wanted = player ? PLAYER : COMPUTER;
+        int count = 0;
+        for (int i = 0; i < units.length; i++) {
+            if (alive[i] && side[i] == wanted) count++;
+        }
+        return count;
+    }
+}
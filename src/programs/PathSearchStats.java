@@ -0,0 +1,88 @@
+package programs;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики эффективности поиска пути: сколько клеток раскрыто (закрыто) и посещено
+ * (добавлено в открытый список) за запрос. Поиск размечает клетки лениво, поэтому стоимость
+ * запроса пропорциональна именно этим числам, а не размеру поля.
+ * Учитываются запросы, дошедшие до поиска; соседняя цель, совпадение клеток и невалидные
+ * координаты решаются без поиска и не учитываются. Для Jump Point Search узлы - точки прыжка.
+ * Один экземпляр на поиск пути ({@code getSearchStats()}); запись и чтение потокобезопасны,
+ * последний запрос - последний записанный в любом потоке.
+ * Алгоритмическая сложность: O(1) на запрос
+ */
+public final class PathSearchStats {
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder expandedNodes = new LongAdder();
+    private final LongAdder visitedNodes = new LongAdder();
+    private final LongAccumulator maxExpandedNodes = new LongAccumulator(Math::max, 0);
+
+    // Последний запрос: оба числа в одном long, чтобы читать их согласованно
+    private volatile long lastQuery;
+
+    void record(int expanded, int visited) {
+        queries.increment();
+        expandedNodes.add(expanded);
+        visitedNodes.add(visited);
+        maxExpandedNodes.accumulate(expanded);
+        lastQuery = ((long) expanded << 32) | (visited & 0xFFFFFFFFL);
+    }
+
+    // Счётчики рабочего пространства после поиска
+    void record(PathSearchWorkspace workspace) {
+        record(workspace.expandedCount(), workspace.visitedCount());
+    }
+
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    public long getExpandedNodes() {
+        return expandedNodes.sum();
+    }
+
+    public long getVisitedNodes() {
+        return visitedNodes.sum();
+    }
+
+    public long getMaxExpandedNodes() {
+        return maxExpandedNodes.get();
+    }
+
+    public int getLastExpandedNodes() {
+        return (int) (lastQuery >>> 32);
+    }
+
+    public int getLastVisitedNodes() {
+        return (int) lastQuery;
+    }
+
+    public double getAverageExpandedNodes() {
+        long count = queries.sum();
+        return count == 0 ? 0 : (double) expandedNodes.sum() / count;
+    }
+
+    public double getAverageVisitedNodes() {
+        long count = queries.sum();
+        return count == 0 ? 0 : (double) visitedNodes.sum() / count;
+    }
+
+    public void reset() {
+        queries.reset();
+        expandedNodes.reset();
+        visitedNodes.reset();
+        maxExpandedNodes.reset();
+        lastQuery = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "запросов: " + getQueries()
+                + ", раскрыто в среднем: " + String.format("%.1f", getAverageExpandedNodes())
+                + ", посещено в среднем: " + String.format("%.1f", getAverageVisitedNodes())
+                + ", раскрыто максимум: " + getMaxExpandedNodes();
+    }
+}
@@ -0,0 +1,321 @@
+package programs;
+
+import java.util.Arrays;
+
+/**
+ * Переиспользуемое рабочее пространство поиска пути, привязанное к потоку.
+ * Все данные хранятся в плоских массивах, индексированных упакованным id клетки (x * HEIGHT + y).
+ * Вместо очистки массивов перед каждым запросом используется счётчик поколений:
+ * клетка считается затронутой, только если её метка совпадает с текущим поколением.
+ * Пространство считает раскрытые (закрытые) и посещённые (впервые затронутые) клетки запроса:
+ * по ним {@link PathSearchStats} показывает, во что обошёлся поиск.
+ * Алгоритмическая сложность:
+ * - begin(): O(1) (кроме первого вызова и переполнения счётчика поколений)
+ * - push/poll/decrease-key бинарной кучи: O(log V)
+ */
+final class PathSearchWorkspace {
+
+    private static final ThreadLocal<PathSearchWorkspace> CURRENT =
+            ThreadLocal.withInitial(PathSearchWorkspace::new);
+
+    private int capacity;
+    private int generation;
+
+    // Размеры поля текущего запроса
+    private int width;
+    private int height;
+
+    // Метки поколений: клетка затронута / закрыта / занята / цель в текущем запросе
+    private int[] touchedStamp = new int[0];
+    private int[] closedStamp = new int[0];
+    private int[] blockedStamp = new int[0];
+    private int[] goalStamp = new int[0];
+
+    // Стоимость пути от старта, f = g + h и родитель (id клетки)
+    private int[] gScore = new int[0];
+    private int[] fScore = new int[0];
+    private int[] parent = new int[0];
+
+    // Бинарная куча по f (при равенстве - по большему g) и позиции клеток в ней
+    private int[] heap = new int[0];
+    private int[] heapIndex = new int[0];
+    private int heapSize;
+
+    // Внешняя битовая доска занятости (вместо меток blockedStamp) и исключённые из неё клетки
+    private OccupancyBitboard obstacleBoard;
+    private int maskedCellA = -1;
+    private int maskedCellB = -1;
+
+    // Буфер для восстановления пути без промежуточных коллекций
+    private int[] pathBuffer = new int[0];
+
+    // Раскрытые и посещённые клетки с начала текущего запроса
+    private int expandedCount;
+    private int visitedCount;
+
+    private PathSearchWorkspace() {
+    }
+
+    static PathSearchWorkspace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Отдельное рабочее пространство - для поиска, вложенного в другой поиск того же потока
+     * (например, внутри кластера во время абстрактного поиска {@link HierarchicalPathFinder}).
+     */
+    static PathSearchWorkspace create() {
+        return new PathSearchWorkspace();
+    }
+
+    /**
+     * Начинает новый запрос на поле width × height: O(1) вместо заполнения всех массивов.
+     */
+    void begin(int width, int height) {
+        this.width = width;
+        this.height = height;
+        ensureCapacity(width * height);
+        heapSize = 0;
+        obstacleBoard = null;
+        expandedCount = 0;
+        visitedCount = 0;
+
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            // Переполнение счётчика: один раз сбрасываем метки
+            Arrays.fill(touchedStamp, 0);
+            Arrays.fill(closedStamp, 0);
+            Arrays.fill(blockedStamp, 0);
+            Arrays.fill(goalStamp, 0);
+            generation = 1;
+        }
+    }
+
+    private void ensureCapacity(int cellCount) {
+        if (cellCount <= capacity) return;
+
+        capacity = cellCount;
+        touchedStamp = new int[cellCount];
+        closedStamp = new int[cellCount];
+        blockedStamp = new int[cellCount];
+        goalStamp = new int[cellCount];
+        gScore = new int[cellCount];
+        fScore = new int[cellCount];
+        parent = new int[cellCount];
+        heap = new int[cellCount];
+        heapIndex = new int[cellCount];
+        pathBuffer = new int[cellCount];
+        generation = 0;
+    }
+
+    // --- Геометрия поля ---
+
+    int width() {
+        return width;
+    }
+
+    int height() {
+        return height;
+    }
+
+    int cellId(int x, int y) {
+        return x * height + y;
+    }
+
+    /**
+     * Клетка внутри поля и не занята препятствием.
+     */
+    boolean isWalkable(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && !isBlocked(cellId(x, y));
+    }
+
+    // --- Препятствия ---
+
+    void block(int cell) {
+        blockedStamp[cell] = generation;
+    }
+
+    /**
+     * Использует битовую доску боя как карту препятствий за O(1):
+     * клетки атакующего и цели исключаются маской, а не перестроением карты.
+     */
+    void useObstacleBoard(OccupancyBitboard board, int maskedCellA, int maskedCellB) {
+        this.obstacleBoard = board;
+        this.maskedCellA = maskedCellA;
+        this.maskedCellB = maskedCellB;
+    }
+
+    boolean isBlocked(int cell) {
+        if (obstacleBoard != null) {
+            return cell != maskedCellA && cell != maskedCellB && obstacleBoard.isOccupied(cell);
+        }
+        return blockedStamp[cell] == generation;
+    }
+
+    // --- Цели поиска с несколькими целями или источниками (без битовых масок на всё поле) ---
+
+    void markGoal(int cell) {
+        goalStamp[cell] = generation;
+    }
+
+    boolean isGoal(int cell) {
+        return goalStamp[cell] == generation;
+    }
+
+    // --- Состояние клеток ---
+
+    boolean isTouched(int cell) {
+        return touchedStamp[cell] == generation;
+    }
+
+    boolean isClosed(int cell) {
+        return closedStamp[cell] == generation;
+    }
+
+    void close(int cell) {
+        closedStamp[cell] = generation;
+        expandedCount++;
+    }
+
+    int g(int cell) {
+        return isTouched(cell) ? gScore[cell] : Integer.MAX_VALUE;
+    }
+
+    int parent(int cell) {
+        return parent[cell];
+    }
+
+    // Переписывает родителя при склейке путей (двунаправленный поиск)
+    void setParent(int cell, int parentCell) {
+        parent[cell] = parentCell;
+    }
+
+    /**
+     * Записывает стартовую клетку и помещает её в кучу.
+     */
+    void start(int cell, int h) {
+        if (!isTouched(cell)) {
+            visitedCount++;
+        }
+        touchedStamp[cell] = generation;
+        gScore[cell] = 0;
+        fScore[cell] = h;
+        parent[cell] = -1;
+        push(cell);
+    }
+
+    /**
+     * Обновляет стоимость клетки: добавляет в кучу или выполняет decrease-key.
+     */
+    void relax(int cell, int parentCell, int g, int f) {
+        boolean touched = isTouched(cell);
+        boolean inHeap = touched && !isClosed(cell);
+        if (!touched) {
+            visitedCount++;
+        }
+
+        touchedStamp[cell] = generation;
+        gScore[cell] = g;
+        fScore[cell] = f;
+        parent[cell] = parentCell;
+
+        if (inHeap) {
+            siftUp(heapIndex[cell]);
+        } else {
+            push(cell);
+        }
+    }
+
+    // --- Счётчики запроса ---
+
+    int expandedCount() {
+        return expandedCount;
+    }
+
+    int visitedCount() {
+        return visitedCount;
+    }
+
+    // Добавляет счётчики другого пространства, участвовавшего в том же запросе
+    void addCounts(PathSearchWorkspace other) {
+        expandedCount += other.expandedCount;
+        visitedCount += other.visitedCount;
+    }
+
+    // --- Бинарная куча ---
+
+    boolean isHeapEmpty() {
+        return heapSize == 0;
+    }
+
+    int heapSize() {
+        return heapSize;
+    }
+
+    // Минимальное f в куче (куча не пуста)
+    int topF() {
+        return fScore[heap[0]];
+    }
+
+    int poll() {
+        int top = heap[0];
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void push(int cell) {
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize);
+        heapSize++;
+    }
+
+    private boolean less(int a, int b) {
+        if (fScore[a] != fScore[b]) return fScore[a] < fScore[b];
+        // При равном f раскрываем более глубокий узел - меньше лишних раскрытий
+        return gScore[a] > gScore[b];
+    }
+
+    private void siftUp(int index) {
+        int cell = heap[index];
+        while (index > 0) {
+            int parentIndex = (index - 1) >>> 1;
+            int parentCell = heap[parentIndex];
+            if (!less(cell, parentCell)) break;
+            heap[index] = parentCell;
+            heapIndex[parentCell] = index;
+            index = parentIndex;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    private void siftDown(int index) {
+        int cell = heap[index];
+        int half = heapSize >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < heapSize && less(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!less(heap[child], cell)) break;
+            heap[index] = heap[child];
+            heapIndex[heap[index]] = index;
+            index = child;
+        }
+        heap[index] = cell;
+        heapIndex[cell] = index;
+    }
+
+    // --- Восстановление пути ---
+
+    int[] pathBuffer() {
+        return pathBuffer;
+    }
+}
@@ -0,0 +1,121 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.util.*;
+
+/**
+ * LRU-кэш готовых составов армии компьютера.
+ * Ключ - отпечаток характеристик шаблонов (тип, здоровье, атака, стоимость, тип атаки, бонусы),
+ * бюджет, целевая функция и геометрия поля (от неё зависят координаты): игра вызывает генерацию с одними и теми же шаблонами и бюджетом
+ * каждый матч. Значение - состав и координаты; юниты по нему каждый раз создаются заново,
+ * поэтому бой не может испортить закэшированную армию.
+ * Алгоритмическая сложность: O(n) на построение ключа, O(1) на поиск
+ */
+final class PresetCache {
+
+    private final int capacity;
+    private final LinkedHashMap<Key, Preset> entries;
+
+    PresetCache(int capacity) {
+        this.capacity = capacity;
+        // accessOrder = true: порядок обхода - от давно использованных к недавним
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Preset> eldest) {
+                return size() > PresetCache.this.capacity;
+            }
+        };
+    }
+
+    synchronized Preset get(Key key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(Key key, Preset preset) {
+        entries.put(key, preset);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Отпечаток входных данных генерации.
+     */
+    static final class Key {
+        private final List<List<Object>> templates;
+        private final int maxPoints;
+        private final ArmyObjective objective;
+        private final BoardGeometry geometry;
+        private final int hash;
+
+        Key(List<Unit> unitList, int maxPoints, ArmyObjective objective, BoardGeometry geometry) {
+            List<List<Object>> stats = new ArrayList<>(unitList.size());
+            for (Unit template : unitList) {
+                stats.add(template == null ? null : Arrays.asList(
+                        template.getUnitType(),
+                        template.getHealth(),
+                        template.getBaseAttack(),
+                        template.getCost(),
+                        template.getAttackType(),
+                        copyOf(template.getAttackBonuses()),
+                        copyOf(template.getDefenceBonuses())));
+            }
+            this.templates = stats;
+            this.maxPoints = maxPoints;
+            this.objective = objective;
+            this.geometry = geometry;
+            this.hash = Objects.hash(templates, maxPoints, objective, geometry);
+        }
+
+        private static Map<String, Double> copyOf(Map<String, Double> bonuses) {
+            return bonuses != null ? new HashMap<>(bonuses) : Collections.emptyMap();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return maxPoints == other.maxPoints
+                    && objective == other.objective
+                    && geometry.equals(other.geometry)
+                    && templates.equals(other.templates);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Готовый состав: для каждого юнита - индекс шаблона, номер в имени и координаты.
+     * Неизменяемые карты бонусов каждого шаблона общие у всех создаваемых по составу юнитов.
+     */
+    static final class Preset {
+        final int[] templateIndex;
+        final int[] unitNumber;
+        final int[] x;
+        final int[] y;
+        final List<Map<String, Double>> attackBonuses;
+        final List<Map<String, Double>> defenceBonuses;
+
+        Preset(int[] templateIndex, int[] unitNumber, int[] x, int[] y,
+               List<Map<String, Double>> attackBonuses, List<Map<String, Double>> defenceBonuses) {
+            this.templateIndex = templateIndex;
+            this.unitNumber = unitNumber;
+            this.x = x;
+            this.y = y;
+            this.attackBonuses = attackBonuses;
+            this.defenceBonuses = defenceBonuses;
+        }
+
+        int size() {
+            return templateIndex.length;
+        }
+    }
+}
@@ -1,25 +1,58 @@
 package programs;
 
 import com.battle.heroes.army.Army;
-import com.battle.heroes.army.Unit;
 import com.battle.heroes.army.programs.PrintBattleLog;
 import com.battle.heroes.army.programs.SimulateBattle;
 import com.battle.heroes.util.GameSpeedUtil;
 
-import java.util.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Симуляция пошагового боя между армиями.
- * Алгоритмическая сложность: O(r × n log n), где n - общее число юнитов, r - число раундов
- * В худшем случае r ≤ n → O(n² log n)
- * - Сортировка: O(n log n) каждый раунд
- * - Обработка ходов: O(n) каждый раунд
+ * Алгоритмическая сложность: O(n log n + r × n), где n - общее число юнитов, r - число раундов
+ * В худшем случае r ≤ n → O(n²)
+ * - Сортировка: O(n log n) один раз на бой
+ * - Обработка ходов: O(n) каждый раунд, удаление павшего - O(1)
  * - Всего раундов: O(n) в худшем случае
+ * Сам цикл боя находится в {@link BattleEngine}; здесь к нему подключаются консольный вывод
+ * и паузы по скорости игры. Без вывода и пауз тот же цикл запускает {@link HeadlessBattleRunner}.
+ * Если задана политика {@link LogBackpressure}, вывод идёт через {@link AsyncBattleLog}:
+ * поток боя не ждёт консоль.
+ * В режиме {@link #setPackedSimulation(boolean)} бой идёт на {@link PackedBattleState} без вызова
+ * программ юнитов (для массовых симуляций): юниты обновляются по ходу боя для лога,
+ * но не анимируют перемещение.
+ * Если задан каталог журналов ({@link #setJournalDirectory(Path)}), каждый бой дополнительно
+ * пишется в бинарный журнал {@link BattleJournal} (разбор - {@link BattleReplay}).
+ * Детерминированный режим ({@link #setSeed(Long)}) для воспроизводимых замеров: упакованный бой
+ * со случайностью из зерна, виртуальные часы ({@link VirtualClock}) вместо Thread.sleep и хеш
+ * хода боя ({@link BattleHash}). Программы игры выбирают цели через Collections.shuffle с общим
+ * генератором JDK, который не задать зерном, поэтому в этом режиме они не вызываются.
  */
 public class SimulateBattleImpl implements SimulateBattle {
+    // Пауза по умолчанию, если скорость игры не задана
+    private static final long DEFAULT_PAUSE_MILLIS = 50;
+    // Записей в кольцевом буфере асинхронного лога
+    private static final int LOG_BUFFER_CAPACITY = 4096;
+
     // Зависимости будут устанавливаться через рефлексию игрой
     private PrintBattleLog printBattleLog;
     private GameSpeedUtil gameSpeedUtil;
+    // null - синхронный вывод, как раньше
+    private LogBackpressure logBackpressure;
+    private boolean packedSimulation;
+    private BoardGeometry geometry = BoardGeometry.DEFAULT;
+    // null - журнал боёв не пишется
+    private Path journalDirectory;
+    // Дополнительный слушатель событий (например, BattleSnapshot.Recorder); null - нет
+    private BattleListener battleListener;
+    // null - обычный режим; иначе зерно каждого боя детерминированного режима
+    private Long seed;
+    private volatile long lastBattleHash;
+    private volatile long lastVirtualMillis;
+    private final AtomicInteger journalCounter = new AtomicInteger();
 
     // Конструктор без параметров для рефлексии
     public SimulateBattleImpl() {
@@ -34,206 +67,146 @@ public class SimulateBattleImpl implements SimulateBattle {
         this.gameSpeedUtil = gameSpeedUtil;
     }
 
+    public void setLogBackpressure(LogBackpressure logBackpressure) {
+        this.logBackpressure = logBackpressure;
+    }
+
+    public void setPackedSimulation(boolean packedSimulation) {
+        this.packedSimulation = packedSimulation;
+    }
+
+    public void setGeometry(BoardGeometry geometry) {
+        this.geometry = geometry != null ? geometry : BoardGeometry.DEFAULT;
+    }
+
+    // Каталог файлов battle-<время>-<номер>.journal; каталог должен существовать
+    public void setJournalDirectory(Path journalDirectory) {
+        this.journalDirectory = journalDirectory;
+    }
+
+    public void setBattleListener(BattleListener battleListener) {
+        this.battleListener = battleListener;
+    }
+
+    /**
+     * Зерно детерминированного режима: бои одних и тех же армий с одним зерном проходят
+     * одинаково и дают одинаковый {@link #getLastBattleHash()}. null - обычный режим.
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    // Хеш хода последнего боя детерминированного режима
+    public long getLastBattleHash() {
+        return lastBattleHash;
+    }
+
+    // Время последнего боя детерминированного режима по виртуальным часам
+    public long getLastVirtualMillis() {
+        return lastVirtualMillis;
+    }
+
     @Override
     public void simulate(Army playerArmy, Army computerArmy) throws InterruptedException {
-        // Проверка входных данных
-        if (playerArmy == null || computerArmy == null) {
-            throw new IllegalArgumentException("Армии не могут быть null");
+        BattleJournal journal = openJournal(playerArmy, computerArmy);
+        try {
+            simulate(journal, playerArmy, computerArmy);
+        } finally {
+            closeJournal(journal);
         }
+    }
 
-        // Объединяем все юниты для удобства обработки
-        List<Unit> allUnits = new ArrayList<>();
-        allUnits.addAll(playerArmy.getUnits());
-        allUnits.addAll(computerArmy.getUnits());
-
-        int round = 1;
-        final int MAX_ROUNDS = 200; // Уменьшено для безопасности, но достаточно для любых армий
-
-        System.out.println("=== НАЧАЛО БОЯ ===");
-
-        // Главный цикл боя
-        while (round <= MAX_ROUNDS) {
-            // Проверка прерывания потока
-            if (Thread.currentThread().isInterrupted()) {
-                System.out.println("Бой прерван пользователем");
-                return;
-            }
-
-            // 1. Получаем живых юнитов в начале раунда
-            List<Unit> aliveUnits = getAliveUnits(allUnits);
-
-            // Проверяем условия окончания боя
-            if (aliveUnits.isEmpty()) {
-                System.out.println("Все юниты погибли!");
-                break;
-            }
-
-            boolean playerAlive = hasAliveUnits(playerArmy.getUnits());
-            boolean computerAlive = hasAliveUnits(computerArmy.getUnits());
-
-            if (!playerAlive || !computerAlive) {
-                // Одна из армий уничтожена
-                announceBattleResult(playerArmy, computerArmy);
-                break;
-            }
-
-            System.out.println("\n--- Раунд " + round + " ---");
-            System.out.println("Живых юнитов: " + aliveUnits.size());
-
-            // 2. СОРТИРОВКА ПО УБЫВАНИЮ АТАКИ (ТРЕБОВАНИЕ ЗАДАНИЯ)
-            // При равной атаке сортируем по имени для детерминированности
-            aliveUnits.sort((u1, u2) -> {
-                int attackDiff = Integer.compare(u2.getBaseAttack(), u1.getBaseAttack());
-                if (attackDiff != 0) return attackDiff;
-                // При одинаковой атаке сортируем по имени
-                return u1.getName().compareTo(u2.getName());
-            });
-
-            // 3. Создаем копию списка для очереди ходов текущего раунда
-            List<Unit> turnQueue = new ArrayList<>(aliveUnits);
-
-            // 4. Каждый юнит в очереди делает ход
-            int turnIndex = 0;
-            while (turnIndex < turnQueue.size()) {
-                // Проверка прерывания потока
-                if (Thread.currentThread().isInterrupted()) {
-                    System.out.println("Бой прерван пользователем во время хода");
-                    return;
-                }
-
-                Unit attacker = turnQueue.get(turnIndex);
-
-                // Пропускаем, если юнит умер до своего хода (в этом же раунде)
-                if (attacker == null || !attacker.isAlive()) {
-                    turnIndex++;
-                    continue;
-                }
-
-                // Выполняем атаку
-                try {
-                    Unit target = attacker.getProgram().attack();
-
-                    // Логирование атаки (ТРЕБОВАНИЕ ЗАДАНИЯ)
-                    if (target != null) {
-                        // Если printBattleLog установлен, используем его, иначе логируем в консоль
-                        if (printBattleLog != null) {
-                            printBattleLog.printBattleLog(attacker, target);
-                        } else {
-                            // Фоллбэк логгирование для отладки
-                            System.out.println("[LOG] " + attacker.getName() + " атаковал " + target.getName());
-                        }
-
-                        System.out.println(attacker.getName() + " атаковал " + target.getName());
-
-                        // Проверяем, умерла ли цель
-                        if (!target.isAlive()) {
-                            System.out.println(target.getName() + " погиб!");
-
-                            // УДАЛЕНИЕ ПАВШЕГО ЮНИТА ИЗ ОЧЕРЕДИ ХОДОВ (ТРЕБОВАНИЕ ЗАДАНИЯ)
-                            // Ищем цель в оставшейся части очереди
-                            for (int i = turnIndex + 1; i < turnQueue.size(); i++) {
-                                if (turnQueue.get(i) == target) {
-                                    turnQueue.remove(i);
-                                    break;
-                                }
-                            }
-                        }
-                    } else {
-                        System.out.println(attacker.getName() + " не нашёл цель для атаки");
-                    }
-
-                    // Пауза для визуализации (если установлена скорость)
-                    if (gameSpeedUtil != null && gameSpeedUtil.getGameSpeed() != null && gameSpeedUtil.getGameSpeed() > 0) {
-                        Thread.sleep(gameSpeedUtil.getGameSpeed());
-                    } else if (gameSpeedUtil != null && gameSpeedUtil.getGameSpeed() != null) {
-                        // Если скорость = 0, не спим
-                    } else {
-                        // Если gameSpeedUtil не установлен, небольшая пауза для читаемости
-                        Thread.sleep(50);
-                    }
-
-                } catch (InterruptedException e) {
-                    // Пробрасываем прерывание дальше
-                    System.out.println("Симуляция боя прервана");
-                    throw e;
-                } catch (Exception e) {
-                    System.err.println("Ошибка при атаке " + attacker.getName() + ": " + e.getMessage());
-                    e.printStackTrace();
-                }
-
-                turnIndex++;
-            }
-
-            // 5. Проверка окончания боя после раунда
-            playerAlive = hasAliveUnits(playerArmy.getUnits());
-            computerAlive = hasAliveUnits(computerArmy.getUnits());
-
-            if (!playerAlive || !computerAlive) {
-                announceBattleResult(playerArmy, computerArmy);
-                break;
-            }
-
-            // Статистика после раунда
-            System.out.println("После раунда " + round + ":");
-            System.out.println("  Игрок: " + countAliveUnits(playerArmy.getUnits()) + " юнитов");
-            System.out.println("  Компьютер: " + countAliveUnits(computerArmy.getUnits()) + " юнитов");
-
-            round++;
+    private void simulate(BattleJournal journal, Army playerArmy, Army computerArmy) throws InterruptedException {
+        if (logBackpressure == null || playerArmy == null || computerArmy == null) {
+            run(BattleListener.both(new ConsoleBattleListener(printBattleLog), journal), playerArmy, computerArmy);
+            return;
         }
 
-        // Если достигли максимального количества раундов
-        if (round > MAX_ROUNDS) {
-            System.out.println("\nБой остановлен после " + MAX_ROUNDS + " раундов (превышен лимит)");
-            announceBattleResult(playerArmy, computerArmy);
+        // close() дожидается вывода всех событий, в том числе при прерывании боя
+        try (AsyncBattleLog log = new AsyncBattleLog(printBattleLog, logBackpressure, LOG_BUFFER_CAPACITY,
+                playerArmy, computerArmy)) {
+            run(BattleListener.both(log, journal), playerArmy, computerArmy);
         }
     }
 
-    // Вспомогательные методы
-    private List<Unit> getAliveUnits(List<Unit> units) {
-        List<Unit> alive = new ArrayList<>();
-        for (Unit unit : units) {
-            if (unit != null && unit.isAlive()) {
-                alive.add(unit);
-            }
+    // Журнал не должен мешать бою: ошибки файла печатаются в System.err, бой идёт без журнала
+    private BattleJournal openJournal(Army playerArmy, Army computerArmy) {
+        if (journalDirectory == null || playerArmy == null || computerArmy == null) {
+            return null;
+        }
+        Path file = journalDirectory.resolve("battle-" + System.currentTimeMillis() + "-"
+                + journalCounter.incrementAndGet() + ".journal");
+        try {
+            return new BattleJournal(file, playerArmy, computerArmy);
+        } catch (IOException e) {
+            System.err.println("Не удалось создать журнал боя " + file + ": " + e.getMessage());
+            return null;
         }
-        return alive;
     }
 
-    private boolean hasAliveUnits(List<Unit> units) {
-        for (Unit unit : units) {
-            if (unit != null && unit.isAlive()) {
-                return true;
-            }
+    private static void closeJournal(BattleJournal journal) {
+        if (journal == null) return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            System.err.println("Ошибка записи журнала боя: " + e.getMessage());
         }
-        return false;
     }
 
-    private int countAliveUnits(List<Unit> units) {
-        int count = 0;
-        for (Unit unit : units) {
-            if (unit != null && unit.isAlive()) {
-                count++;
-            }
+    private void run(BattleListener output, Army playerArmy, Army computerArmy) throws InterruptedException {
+        BattleListener listener = BattleListener.both(output, battleListener);
+        if (seed != null && playerArmy != null && computerArmy != null) {
+            runSeeded(listener, playerArmy, computerArmy);
+            return;
+        }
+        if (!packedSimulation || playerArmy == null || computerArmy == null) {
+            new BattleEngine(listener, this::pause, geometry).run(playerArmy, computerArmy);
+            return;
+        }
+
+        PackedBattleState state = PackedBattleState.of(playerArmy, computerArmy);
+        try {
+            PackedBattleSimulator simulator = new PackedBattleSimulator(listener, this::pause);
+            simulator.setGeometry(geometry);
+            simulator.run(state);
+        } finally {
+            state.applyTo();
         }
-        return count;
     }
 
-    private void announceBattleResult(Army playerArmy, Army computerArmy) {
-        int playerAlive = countAliveUnits(playerArmy.getUnits());
-        int computerAlive = countAliveUnits(computerArmy.getUnits());
+    private void runSeeded(BattleListener listener, Army playerArmy, Army computerArmy) throws InterruptedException {
+        BattleHash hash = new BattleHash();
+        VirtualClock clock = new VirtualClock(pauseMillis());
+        PackedBattleState state = PackedBattleState.of(playerArmy, computerArmy);
+        try {
+            PackedBattleSimulator simulator = new PackedBattleSimulator(BattleListener.both(hash, listener), clock);
+            simulator.setGeometry(geometry);
+            simulator.setRandom(new SplittableRandom(seed));
+            simulator.run(state);
+        } finally {
+            state.applyTo();
+            lastBattleHash = hash.getValue();
+            lastVirtualMillis = clock.getElapsedMillis();
+        }
+    }
 
-        System.out.println("\n=== ИТОГИ БОЯ ===");
-        System.out.println("Армия игрока: " + playerAlive + " выживших");
-        System.out.println("Армия компьютера: " + computerAlive + " выживших");
+    // Пауза после атаки в миллисекундах: скорость игры или пауза по умолчанию
+    private long pauseMillis() {
+        if (gameSpeedUtil == null || gameSpeedUtil.getGameSpeed() == null) {
+            return DEFAULT_PAUSE_MILLIS;
+        }
+        return Math.max(0, gameSpeedUtil.getGameSpeed());
+    }
 
-        if (playerAlive == 0 && computerAlive == 0) {
-            System.out.println("НИЧЬЯ! Все юниты погибли.");
-        } else if (playerAlive > 0 && computerAlive == 0) {
-            System.out.println("ПОБЕДА ИГРОКА!");
-        } else if (playerAlive == 0 && computerAlive > 0) {
-            System.out.println("ПОБЕДА КОМПЬЮТЕРА!");
+    // Пауза для визуализации (если установлена скорость)
+    private void pause() throws InterruptedException {
+        if (gameSpeedUtil != null && gameSpeedUtil.getGameSpeed() != null && gameSpeedUtil.getGameSpeed() > 0) {
+            Thread.sleep(gameSpeedUtil.getGameSpeed());
+        } else if (gameSpeedUtil != null && gameSpeedUtil.getGameSpeed() != null) {
+            // Если скорость = 0, не спим
         } else {
-            System.out.println("БОЙ ПРЕРВАН. Игрок: " + playerAlive + ", Компьютер: " + computerAlive);
+            // Если gameSpeedUtil не установлен, небольшая пауза для читаемости
+            Thread.sleep(DEFAULT_PAUSE_MILLIS);
         }
     }
-}
\ No newline at end of file
+}
@@ -9,81 +9,140 @@ import java.util.*;
  * Определение доступных для атаки юнитов.
  * Алгоритмическая сложность: O(n × m), где n = количество юнитов, m = 3 ряда
  * Фактически O(3 × n) = O(n), что соответствует требованиям O(n·m) где m=3
+ * Занятые Y-позиции каждого ряда хранятся битовой маской long (высота стандартного поля 21 ≤ 64),
+ * "не закрыт соседом" - одна операция AND-NOT; вариант с результирующим списком
+ * вызывающего не создаёт объектов. Для полей выше 64 клеток ({@link #setGeometry(BoardGeometry)})
+ * маска ряда - массив long по (высота + 63) / 64 слов.
  */
 public class SuitableForAttackUnitsFinderImpl implements SuitableForAttackUnitsFinder {
 
+    private static final int ROWS = 3;
+
+    private BoardGeometry geometry = BoardGeometry.DEFAULT;
+
+    public void setGeometry(BoardGeometry geometry) {
+        this.geometry = geometry != null ? geometry : BoardGeometry.DEFAULT;
+    }
+
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
     @Override
     public List<Unit> getSuitableUnits(List<List<Unit>> unitsByRow, boolean isLeftArmyTarget) {
         // Проверка входных данных
-        if (unitsByRow == null || unitsByRow.size() != 3) {
+        if (unitsByRow == null || unitsByRow.size() != ROWS) {
             return Collections.emptyList();
         }
 
-        List<Unit> suitableUnits = new ArrayList<>();
+        // Программы юнитов перемешивают результат, поэтому список - всегда новый
+        return getSuitableUnits(unitsByRow, isLeftArmyTarget, new ArrayList<>());
+    }
+
+    /**
+     * То же, что {@link #getSuitableUnits(List, boolean)}, но доступные юниты добавляются
+     * в конец списка result (вызывающий может переиспользовать его между ходами).
+     * Порядок: ряды по возрастанию, внутри ряда - исходный порядок.
+     *
+     * @return result
+     */
+    public List<Unit> getSuitableUnits(List<List<Unit>> unitsByRow, boolean isLeftArmyTarget, List<Unit> result) {
+        if (unitsByRow == null || unitsByRow.size() != ROWS) {
+            return result;
+        }
+        if (geometry.height() > Long.SIZE) {
+            return getSuitableUnitsWide(unitsByRow, isLeftArmyTarget, result);
+        }
 
         // Определяем направление проверки "закрытости" согласно заданию:
         // - isLeftArmyTarget=true: атакуем левую армию (компьютер), проверяем закрытость справа
         // - isLeftArmyTarget=false: атакуем правую армию (игрока), проверяем закрытость слева
+        long mask0 = occupiedMask(unitsByRow.get(0));
+        long mask1 = occupiedMask(unitsByRow.get(1));
+        long mask2 = occupiedMask(unitsByRow.get(2));
+
+        // Маска соседнего ряда для каждого ряда (0 - соседа нет, ряд открыт)
+        long cover0 = isLeftArmyTarget ? mask1 : 0;
+        long cover1 = isLeftArmyTarget ? mask2 : mask0;
+        long cover2 = isLeftArmyTarget ? 0 : mask1;
+
+        addAvailable(unitsByRow.get(0), mask0 & ~cover0, result);
+        addAvailable(unitsByRow.get(1), mask1 & ~cover1, result);
+        addAvailable(unitsByRow.get(2), mask2 & ~cover2, result);
+        return result;
+    }
 
-        // Для каждого ряда (фиксировано 3 ряда)
-        for (int rowIndex = 0; rowIndex < 3; rowIndex++) {
-            List<Unit> currentRow = unitsByRow.get(rowIndex);
-            if (currentRow == null || currentRow.isEmpty()) continue;
-
-            // Находим доступных юнитов в этом ряду
-            List<Unit> availableInRow = findAvailableUnitsInRow(unitsByRow, rowIndex, isLeftArmyTarget);
-            suitableUnits.addAll(availableInRow);
-        }
-
-        return suitableUnits;
+    // Высокое поле: те же правила, маски рядов - массивы слов
+    private List<Unit> getSuitableUnitsWide(List<List<Unit>> unitsByRow, boolean isLeftArmyTarget,
+                                            List<Unit> result) {
+        // Закрывать могут только два ряда: 1 и 2 справа или 0 и 1 слева
+        int height = geometry.height();
+        long[] mask1 = occupiedMask(unitsByRow.get(1), height);
+        long[] outer = occupiedMask(unitsByRow.get(isLeftArmyTarget ? 2 : 0), height);
+
+        addAvailable(unitsByRow.get(0), isLeftArmyTarget ? mask1 : null, height, result);
+        addAvailable(unitsByRow.get(1), outer, height, result);
+        addAvailable(unitsByRow.get(2), isLeftArmyTarget ? null : mask1, height, result);
+        return result;
     }
 
     /**
-     * Находит доступных юнитов в одном ряду
-     * Юнит доступен, если в соседнем ряду (слева или справа) на той же Y координате нет юнита
+     * Битовая маска Y-координат живых юнитов ряда: бит y установлен, если клетка занята.
      */
-    private List<Unit> findAvailableUnitsInRow(List<List<Unit>> allRows, int currentRowIndex,
-                                               boolean isLeftArmyTarget) {
-        List<Unit> available = new ArrayList<>();
-        List<Unit> currentRow = allRows.get(currentRowIndex);
-
-        // Определяем индекс соседнего ряда для проверки "закрытости"
-        int checkRowIndex;
-        if (isLeftArmyTarget) {
-            // Атакуем левую армию (компьютер) → проверяем, не закрыт ли справа
-            checkRowIndex = currentRowIndex + 1;
-        } else {
-            // Атакуем правую армию (игрока) → проверяем, не закрыт ли слева
-            checkRowIndex = currentRowIndex - 1;
+    private static long occupiedMask(List<Unit> row) {
+        long mask = 0;
+        if (row == null) return mask;
+        for (int i = 0, n = row.size(); i < n; i++) {
+            Unit unit = row.get(i);
+            if (unit != null && unit.isAlive()) {
+                mask |= bit(unit.getyCoordinate());
+            }
         }
+        return mask;
+    }
 
-        // Если соседний ряд существует, собираем занятые Y позиции
-        Set<Integer> occupiedYInNeighbor = new HashSet<>();
-        if (checkRowIndex >= 0 && checkRowIndex < allRows.size()) {
-            List<Unit> neighborRow = allRows.get(checkRowIndex);
-            if (neighborRow != null) {
-                for (Unit unit : neighborRow) {
-                    if (unit != null && unit.isAlive()) {
-                        occupiedYInNeighbor.add(unit.getyCoordinate());
-                    }
-                }
+    private static long[] occupiedMask(List<Unit> row, int height) {
+        long[] mask = new long[(height + 63) >>> 6];
+        if (row == null) return mask;
+        for (int i = 0, n = row.size(); i < n; i++) {
+            Unit unit = row.get(i);
+            if (unit == null || !unit.isAlive()) continue;
+            int y = unit.getyCoordinate();
+            if (y >= 0 && y < height) {
+                mask[y >>> 6] |= 1L << y;
             }
         }
+        return mask;
+    }
 
-        // Проверяем юнитов в текущем ряду
-        for (Unit unit : currentRow) {
-            if (unit != null && unit.isAlive()) {
-                int yPos = unit.getyCoordinate();
-
-                // Юнит доступен, если в соседнем ряду на той же Y нет юнита
-                boolean isAvailable = !occupiedYInNeighbor.contains(yPos);
+    /**
+     * Добавляет живых юнитов ряда, чья Y-позиция входит в маску открытых клеток.
+     */
+    private static void addAvailable(List<Unit> row, long openMask, List<Unit> result) {
+        if (row == null || openMask == 0) return;
+        for (int i = 0, n = row.size(); i < n; i++) {
+            Unit unit = row.get(i);
+            if (unit != null && unit.isAlive() && (openMask & bit(unit.getyCoordinate())) != 0) {
+                result.add(unit);
+            }
+        }
+    }
 
-                if (isAvailable) {
-                    available.add(unit);
-                }
+    // Юнит открыт, если его клетка на поле и не закрыта соседним рядом (null - соседа нет)
+    private static void addAvailable(List<Unit> row, long[] cover, int height, List<Unit> result) {
+        if (row == null) return;
+        for (int i = 0, n = row.size(); i < n; i++) {
+            Unit unit = row.get(i);
+            if (unit == null || !unit.isAlive()) continue;
+            int y = unit.getyCoordinate();
+            if (y >= 0 && y < height && (cover == null || (cover[y >>> 6] & (1L << y)) == 0)) {
+                result.add(unit);
             }
         }
+    }
 
-        return available;
+    // Координаты вне [0, 64) на таком поле не встречаются; такой юнит не закрывает и не открыт
+    private static long bit(int y) {
+        return y >= 0 && y < Long.SIZE ? 1L << y : 0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package programs;
+
+import com.battle.heroes.army.Unit;
+
+import java.util.*;
+
+/**
+ * Порядок ходов на весь бой: юниты сортируются один раз (атака по убыванию, при равенстве -
+ * по имени), живые отмечаются битами. Базовая атака в бою не меняется, поэтому порядок
+ * между раундами тот же, и павшие просто вычёркиваются.
+ * Алгоритмическая сложность: O(n log n) на построение, O(1) на удаление павшего,
+ * O(n / 64) на переход к следующему живому в худшем случае
+ */
+final class TurnOrder {
+
+    private final Unit[] order;
+    private final long[] alive;
+    // Позиция юнита в порядке ходов (по ссылке)
+    private final Map<Unit, Integer> positions;
+    private int aliveCount;
+
+    TurnOrder(List<Unit> units) {
+        List<Unit> sorted = new ArrayList<>(units.size());
+        for (Unit unit : units) {
+            if (unit != null) sorted.add(unit);
+        }
+
+        // СОРТИРОВКА ПО УБЫВАНИЮ АТАКИ (ТРЕБОВАНИЕ ЗАДАНИЯ)
+        // При равной атаке сортируем по имени для детерминированности
+        sorted.sort((u1, u2) -> {
+            int attackDiff = Integer.compare(u2.getBaseAttack(), u1.getBaseAttack());
+            if (attackDiff != 0) return attackDiff;
+            return u1.getName().compareTo(u2.getName());
+        });
+
+        this.order = sorted.toArray(new Unit[0]);
+        this.alive = new long[(order.length + 63) >>> 6];
+        this.positions = new IdentityHashMap<>(order.length * 2);
+        for (int i = 0; i < order.length; i++) {
+            positions.put(order[i], i);
+            if (order[i].isAlive()) {
+                alive[i >>> 6] |= 1L << i;
+                aliveCount++;
+            }
+        }
+    }
+
+    /**
+     * Вычёркивает юнитов, погибших не на глазах у цикла боя. O(n) без сортировки.
+     */
+    void removeDead() {
+        for (int i = nextAlive(0); i >= 0; i = nextAlive(i + 1)) {
+            if (!order[i].isAlive()) remove(i);
+        }
+    }
+
+    /**
+     * УДАЛЕНИЕ ПАВШЕГО ЮНИТА ИЗ ОЧЕРЕДИ ХОДОВ (ТРЕБОВАНИЕ ЗАДАНИЯ) за O(1).
+     */
+    void remove(Unit unit) {
+        Integer position = positions.get(unit);
+        if (position != null) remove(position);
+    }
+
+    private void remove(int position) {
+        long bit = 1L << position;
+        if ((alive[position >>> 6] & bit) != 0) {
+            alive[position >>> 6] &= ~bit;
+            aliveCount--;
+        }
+    }
+
+    /**
+     * Позиция первого живого юнита, начиная с from, или -1.
+     */
+    int nextAlive(int from) {
+        if (from >= order.length) return -1;
+        int word = from >>> 6;
+        long bits = alive[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) return (word << 6) + Long.numberOfTrailingZeros(bits);
+            if (++word == alive.length) return -1;
+            bits = alive[word];
+        }
+    }
+
+    Unit unitAt(int position) {
+        return order[position];
+    }
+
+    int aliveCount() {
+        return aliveCount;
+    }
+}
@@ -8,68 +8,81 @@ import java.util.*;
 
 /**
  * Поиск кратчайшего пути между юнитами на игровом поле.
- * Алгоритмическая сложность: O(V log V), где V = WIDTH × HEIGHT = 27 × 21 = 567
+ * Алгоритмическая сложность: O(V log V), где V = ширина × высота поля ({@link BoardGeometry}),
+ * для стандартного поля 27 × 21 = 567
  * - V = 567 клеток
  * - Каждая клетка обрабатывается в худшем случае 1 раз
  * - Приоритетная очередь: O(log V) на операцию
  * - Итог: O(V log V)
+ * Память: поиск работает в переиспользуемом {@link PathSearchWorkspace} потока,
+ * поэтому в установившемся режиме выделяется только возвращаемый список рёбер.
+ * Если поток боя привязал {@link OccupancyBitboard}, карта препятствий берётся из неё за O(1)
+ * вместо обхода existingUnitList за O(n). При включённом {@link #setDistanceFieldCacheEnabled(boolean)}
+ * запросы к одной цели на неизменной доске отвечаются спуском по кэшированному полю расстояний.
+ * Алгоритм поиска выбирается через {@link #setSearchEngine(SearchEngine)}: A* (по умолчанию)
+ * или Jump Point Search - стоимость найденных путей у них совпадает.
+ * Пути нескольких атакующих к одной цели ищутся одним обратным поиском: {@link #getTargetPaths}.
+ * Размеры поля и стоимость шагов задаются через {@link #setGeometry(BoardGeometry)}; запрос
+ * не инициализирует массивы на всё поле (метки поколений), поэтому большие поля платят
+ * только за раскрытые клетки.
  */
 public class UnitTargetPathFinderImpl implements UnitTargetPathFinder {
 
-    // Константы игрового поля
-    private static final int WIDTH = 27;
-    private static final int HEIGHT = 21;
-    private static final int STRAIGHT_COST = 10;
-    private static final int DIAGONAL_COST = 14;
+    // Стоимость шагов стандартного поля (BoardGeometry.DEFAULT)
+    static final int STRAIGHT_COST = 10;
+    static final int DIAGONAL_COST = 14;
+
+    // 8 направлений движения (включая диагонали): смещения по X и по Y
+    private static final int[] DX = {0, 1, 0, -1, 1, 1, -1, -1};
+    private static final int[] DY = {1, 0, -1, 0, 1, -1, 1, -1};
+
+    /**
+     * Алгоритм поиска пути.
+     */
+    public enum SearchEngine {
+        // Классический A* по всем клеткам поля
+        A_STAR,
+        // Jump Point Search: отсекает симметричные пути, раскрывая только точки прыжка
+        JUMP_POINT,
+        // Двунаправленный A*: встречные поиски от атакующего и от цели, стоимость пути как у A*
+        BIDIRECTIONAL
+    }
 
-    // 8 направлений движения (включая диагонали)
-    private static final int[][] DIRECTIONS = {
-            {0, 1},   // Вверх
-            {1, 0},   // Вправо
-            {0, -1},  // Вниз
-            {-1, 0},  // Влево
-            {1, 1},   // Вправо-вверх
-            {1, -1},  // Вправо-вниз
-            {-1, 1},  // Влево-вверх
-            {-1, -1}  // Влево-вниз
-    };
+    private SearchEngine searchEngine = SearchEngine.A_STAR;
+    private BoardGeometry geometry = BoardGeometry.DEFAULT;
 
-    // Внутренний класс для узла поиска
-    private static class Node implements Comparable<Node> {
-        final int x, y;
-        int g; // Стоимость пути от старта
-        int h; // Эвристическая оценка до цели
-        Node parent;
+    public void setGeometry(BoardGeometry geometry) {
+        this.geometry = geometry != null ? geometry : BoardGeometry.DEFAULT;
+    }
 
-        Node(int x, int y) {
-            this.x = x;
-            this.y = y;
-            this.g = Integer.MAX_VALUE;
-            this.h = 0;
-            this.parent = null;
-        }
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
 
-        int f() {
-            return g + h;
-        }
+    public void setSearchEngine(SearchEngine searchEngine) {
+        this.searchEngine = searchEngine != null ? searchEngine : SearchEngine.A_STAR;
+    }
 
-        @Override
-        public int compareTo(Node other) {
-            return Integer.compare(this.f(), other.f());
-        }
+    public SearchEngine getSearchEngine() {
+        return searchEngine;
+    }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (this == obj) return true;
-            if (obj == null || getClass() != obj.getClass()) return false;
-            Node node = (Node) obj;
-            return x == node.x && y == node.y;
-        }
+    // Кэш полей расстояний работает только при привязанной доске боя (нужна её версия)
+    private boolean distanceFieldCacheEnabled;
 
-        @Override
-        public int hashCode() {
-            return Objects.hash(x, y);
-        }
+    public void setDistanceFieldCacheEnabled(boolean distanceFieldCacheEnabled) {
+        this.distanceFieldCacheEnabled = distanceFieldCacheEnabled;
+    }
+
+    public boolean isDistanceFieldCacheEnabled() {
+        return distanceFieldCacheEnabled;
+    }
+
+    // Раскрытые и посещённые клетки по запросам этого экземпляра
+    private final PathSearchStats searchStats = new PathSearchStats();
+
+    public PathSearchStats getSearchStats() {
+        return searchStats;
     }
 
     @Override
@@ -96,175 +109,465 @@ public class UnitTargetPathFinderImpl implements UnitTargetPathFinder {
         int targetY = targetUnit.getyCoordinate();
 
         // 4. Проверка валидности координат
-        if (!isValidCoordinate(startX, startY) || !isValidCoordinate(targetX, targetY)) {
+        BoardGeometry geometry = this.geometry;
+        if (!geometry.contains(startX, startY) || !geometry.contains(targetX, targetY)) {
             return Collections.emptyList();
         }
 
         // 5. Если начальная и конечная точки совпадают
         if (startX == targetX && startY == targetY) {
-            List<Edge> path = new ArrayList<>();
+            List<Edge> path = new ArrayList<>(1);
             path.add(new Edge(startX, startY));
             return path;
         }
 
-        // 6. Проверка прямой доступности (цель в соседней клетке)
-        if (Math.abs(startX - targetX) <= 1 && Math.abs(startY - targetY) <= 1) {
-            return checkDirectPath(startX, startY, targetX, targetY, existingUnitList,
-                    attackUnit, targetUnit);
+        // 6. Разметка препятствий в рабочем пространстве потока (без выделения памяти)
+        PathSearchWorkspace workspace = PathSearchWorkspace.current();
+        workspace.begin(geometry.width(), geometry.height());
+
+        OccupancyBitboard board = OccupancyBitboard.bound();
+        if (board != null && !geometry.matches(board)) {
+            board = null;
+        }
+        if (board != null) {
+            // Доска боя уже актуальна: исключаем атакующего и цель маской за O(1)
+            workspace.useObstacleBoard(board, geometry.cellId(startX, startY), geometry.cellId(targetX, targetY));
+        } else {
+            markObstacles(workspace, geometry, existingUnitList, attackUnit, targetUnit);
         }
 
-        // 7. Создание карты препятствий
-        boolean[][] obstacles = createObstacleMap(existingUnitList, attackUnit, targetUnit);
+        // 7. Проверка прямой доступности (цель в соседней клетке)
+        if (Math.abs(startX - targetX) <= 1 && Math.abs(startY - targetY) <= 1) {
+            return checkDirectPath(workspace, startX, startY, targetX, targetY);
+        }
 
         // 8. Если цель находится на препятствии
-        if (obstacles[targetX][targetY]) {
+        if (workspace.isBlocked(geometry.cellId(targetX, targetY))) {
             return Collections.emptyList();
         }
 
-        // 9. Поиск пути алгоритмом A*
-        return findPathAStar(startX, startY, targetX, targetY, obstacles);
-    }
+        // 9. Поле расстояний до цели из кэша: спуск по градиенту за O(длина пути)
+        // (при попадании в кэш поиск не выполняется и счётчики нулевые)
+        if (distanceFieldCacheEnabled && board != null) {
+            List<Edge> path = findPathByDistanceField(workspace, geometry, board, startX, startY, targetX, targetY);
+            searchStats.record(workspace);
+            return path;
+        }
 
-    private boolean isValidCoordinate(int x, int y) {
-        return x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT;
+        // 10. Поиск пути выбранным алгоритмом
+        boolean found;
+        switch (searchEngine) {
+            case JUMP_POINT:
+                found = JumpPointSearch.search(workspace, geometry, startX, startY, targetX, targetY);
+                break;
+            case BIDIRECTIONAL:
+                found = BidirectionalSearch.search(workspace, geometry, startX, startY, targetX, targetY);
+                break;
+            default:
+                found = findPathAStar(workspace, geometry, startX, startY, targetX, targetY);
+        }
+        searchStats.record(workspace);
+
+        return found ? reconstructPath(workspace, geometry.cellId(targetX, targetY)) : Collections.emptyList();
     }
 
-    private List<Edge> checkDirectPath(int startX, int startY, int targetX, int targetY,
-                                       List<Unit> units, Unit attacker, Unit target) {
-        // Проверка диагональных углов
-        if (Math.abs(startX - targetX) == 1 && Math.abs(startY - targetY) == 1) {
-            for (Unit unit : units) {
-                if (unit == null || !unit.isAlive()) continue;
-                if (unit == attacker || unit == target) continue;
+    /**
+     * Пути нескольких атакующих к одной цели за один поиск: обратный A* от цели ко всем
+     * атакующим сразу (эвристика - расстояние Чебышева до ближайшего из них) останавливается,
+     * когда закрыты клетки всех атакующих; путь каждого - цепочка родителей от его клетки к цели.
+     * Клетки атакующих непроходимы и не служат углами диагоналей, как и в одиночном запросе,
+     * поэтому стоимость каждого пути равна стоимости пути {@link #getTargetPath}.
+     * Результат - список путей в порядке attackUnits (пустой список, если пути нет).
+     * Алгоритмическая сложность: O(V × k + V log V) на весь пакет из k атакующих
+     * вместо k отдельных поисков O(V log V)
+     */
+    public List<List<Edge>> getTargetPaths(List<Unit> attackUnits, Unit targetUnit,
+                                           List<Unit> existingUnitList) {
+        if (attackUnits == null || attackUnits.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (existingUnitList == null) {
+            existingUnitList = Collections.emptyList();
+        }
+
+        BoardGeometry geometry = this.geometry;
+        int count = attackUnits.size();
+        List<List<Edge>> paths = new ArrayList<>(Collections.nCopies(count, Collections.emptyList()));
+        if (targetUnit == null || !targetUnit.isAlive()
+                || !geometry.contains(targetUnit.getxCoordinate(), targetUnit.getyCoordinate())) {
+            return paths;
+        }
+
+        // Доска боя, если привязана, иначе - временная доска по existingUnitList (одна на пакет)
+        OccupancyBitboard board = OccupancyBitboard.bound();
+        if (board == null || !geometry.matches(board)) {
+            board = OccupancyBitboard.fromUnits(existingUnitList, geometry.width(), geometry.height());
+        }
 
-                int ux = unit.getxCoordinate();
-                int uy = unit.getyCoordinate();
+        int targetX = targetUnit.getxCoordinate();
+        int targetY = targetUnit.getyCoordinate();
+        int targetCell = geometry.cellId(targetX, targetY);
+        PathSearchWorkspace workspace = PathSearchWorkspace.current();
+
+        // Соседние и совпадающие с целью атакующие решаются сразу, остальные - общие цели поиска
+        int[] goals = new int[count];
+        int goalCount = 0;
+        for (int i = 0; i < count; i++) {
+            Unit attackUnit = attackUnits.get(i);
+            if (attackUnit == null || !attackUnit.isAlive()
+                    || !geometry.contains(attackUnit.getxCoordinate(), attackUnit.getyCoordinate())) {
+                goals[i] = -1;
+                continue;
+            }
 
-                // Проверяем клетки (startX, targetY) и (targetX, startY)
-                if ((ux == startX && uy == targetY) || (ux == targetX && uy == startY)) {
-                    return Collections.emptyList();
+            int startX = attackUnit.getxCoordinate();
+            int startY = attackUnit.getyCoordinate();
+            if (Math.abs(startX - targetX) <= 1 && Math.abs(startY - targetY) <= 1) {
+                goals[i] = -1;
+                if (startX == targetX && startY == targetY) {
+                    List<Edge> path = new ArrayList<>(1);
+                    path.add(new Edge(startX, startY));
+                    paths.set(i, path);
+                } else {
+                    workspace.begin(geometry.width(), geometry.height());
+                    workspace.useObstacleBoard(board, geometry.cellId(startX, startY), targetCell);
+                    paths.set(i, checkDirectPath(workspace, startX, startY, targetX, targetY));
                 }
+                continue;
             }
+            goals[i] = geometry.cellId(startX, startY);
+            goalCount++;
+        }
+        if (goalCount == 0) {
+            return paths;
         }
 
-        // Путь свободен
-        List<Edge> path = new ArrayList<>();
-        path.add(new Edge(startX, startY));
-        path.add(new Edge(targetX, targetY));
-        return path;
+        workspace.begin(geometry.width(), geometry.height());
+        workspace.useObstacleBoard(board, targetCell, -1);
+        searchFromTarget(workspace, geometry, targetX, targetY, goals);
+        searchStats.record(workspace);
+
+        for (int i = 0; i < count; i++) {
+            if (goals[i] >= 0 && workspace.isClosed(goals[i])) {
+                paths.set(i, parentChain(workspace, geometry, goals[i], targetCell));
+            }
+        }
+        return paths;
     }
 
-    private boolean[][] createObstacleMap(List<Unit> units, Unit attacker, Unit target) {
-        boolean[][] obstacles = new boolean[WIDTH][HEIGHT];
+    /**
+     * Обратный A* от цели: клетки goals (отрицательные пропускаются) можно закрыть, но не раскрыть.
+     */
+    private static void searchFromTarget(PathSearchWorkspace workspace, BoardGeometry geometry,
+                                         int targetX, int targetY, int[] goals) {
+        int height = geometry.height();
+        int[] goalX = new int[goals.length];
+        int[] goalY = new int[goals.length];
+        int remaining = 0;
+        int distinct = 0;
+        for (int goal : goals) {
+            if (goal < 0 || workspace.isGoal(goal)) continue;
+            workspace.markGoal(goal);
+            goalX[distinct] = goal / height;
+            goalY[distinct] = goal % height;
+            distinct++;
+            remaining++;
+        }
 
-        for (Unit unit : units) {
-            if (unit == null || !unit.isAlive()) continue;
-            if (unit == attacker || unit == target) continue;
+        workspace.start(geometry.cellId(targetX, targetY),
+                nearestGoal(geometry, targetX, targetY, goalX, goalY, distinct));
+        while (!workspace.isHeapEmpty() && remaining > 0) {
+            int current = workspace.poll();
+            workspace.close(current);
 
-            int x = unit.getxCoordinate();
-            int y = unit.getyCoordinate();
+            // Клетка атакующего: путь до неё найден, дальше через неё не идём
+            if (workspace.isGoal(current)) {
+                remaining--;
+                continue;
+            }
+
+            int x = current / height;
+            int y = current % height;
+            int currentG = workspace.g(current);
+
+            for (int dir = 0; dir < DX.length; dir++) {
+                int nx = x + DX[dir];
+                int ny = y + DY[dir];
+                if (!geometry.contains(nx, ny)) continue;
+
+                int neighbor = geometry.cellId(nx, ny);
+                if (!workspace.isGoal(neighbor) && workspace.isBlocked(neighbor)) continue;
+                if (workspace.isClosed(neighbor)) continue;
+
+                // Диагональ: углы проверяются по занятости, клетки атакующих заняты
+                boolean diagonal = DX[dir] != 0 && DY[dir] != 0;
+                if (diagonal && (!workspace.isWalkable(x, ny) || !workspace.isWalkable(nx, y))) {
+                    continue;
+                }
 
-            if (isValidCoordinate(x, y)) {
-                obstacles[x][y] = true;
+                int tentativeG = currentG + geometry.stepCost(diagonal);
+                if (tentativeG < workspace.g(neighbor)) {
+                    workspace.relax(neighbor, current, tentativeG,
+                            tentativeG + nearestGoal(geometry, nx, ny, goalX, goalY, distinct));
+                }
             }
         }
+    }
+
+    // Минимум эвристик Чебышева по всем целям: допустима и согласована
+    private static int nearestGoal(BoardGeometry geometry, int x, int y, int[] goalX, int[] goalY, int count) {
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            best = Math.min(best, geometry.heuristic(x, y, goalX[i], goalY[i]));
+        }
+        return best;
+    }
 
-        return obstacles;
+    // Путь от клетки атакующего к цели по родителям обратного поиска
+    private static List<Edge> parentChain(PathSearchWorkspace workspace, BoardGeometry geometry,
+                                          int startCell, int targetCell) {
+        int height = geometry.height();
+        List<Edge> path = new ArrayList<>();
+        int cell = startCell;
+        path.add(new Edge(cell / height, cell % height));
+        while (cell != targetCell) {
+            cell = workspace.parent(cell);
+            path.add(new Edge(cell / height, cell % height));
+        }
+        return path;
     }
 
-    private List<Edge> findPathAStar(int startX, int startY, int targetX, int targetY,
-                                     boolean[][] obstacles) {
-        // Инициализация узлов
-        Node[][] nodes = new Node[WIDTH][HEIGHT];
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < HEIGHT; y++) {
-                nodes[x][y] = new Node(x, y);
+    /**
+     * Существует ли путь атакующего из (startX, startY) к цели в (targetX, targetY) по тем же
+     * правилам, что у {@link #getTargetPath}: препятствия - занятые клетки доски, кроме старта
+     * и цели. Нужна симуляции без объектов Unit ({@link PackedBattleSimulator}): юнит ближнего боя
+     * возвращается на исходную клетку, поэтому важна только достижимость, а не сам путь.
+     * Алгоритмическая сложность: O(1) для соседней цели, иначе A* - O(V log V), путь не строится
+     */
+    static boolean hasPath(BoardGeometry geometry, OccupancyBitboard board,
+                           int startX, int startY, int targetX, int targetY) {
+        if (!geometry.matches(board)) {
+            throw new IllegalArgumentException("Доска должна быть размером " + geometry.width() + "×" + geometry.height());
+        }
+        if (!geometry.contains(startX, startY) || !geometry.contains(targetX, targetY)) {
+            return false;
+        }
+        if (startX == targetX && startY == targetY) {
+            return true;
+        }
+
+        PathSearchWorkspace workspace = PathSearchWorkspace.current();
+        workspace.begin(geometry.width(), geometry.height());
+        workspace.useObstacleBoard(board, geometry.cellId(startX, startY), geometry.cellId(targetX, targetY));
+
+        // Соседняя цель: по диагонали нельзя срезать занятый угол
+        if (Math.abs(startX - targetX) <= 1 && Math.abs(startY - targetY) <= 1) {
+            return !checkDirectPath(workspace, startX, startY, targetX, targetY).isEmpty();
+        }
+        return findPathAStar(workspace, geometry, startX, startY, targetX, targetY);
+    }
+
+    private static List<Edge> checkDirectPath(PathSearchWorkspace workspace, int startX, int startY,
+                                       int targetX, int targetY) {
+        // Проверка диагональных углов: клетки (startX, targetY) и (targetX, startY)
+        if (Math.abs(startX - targetX) == 1 && Math.abs(startY - targetY) == 1) {
+            if (workspace.isBlocked(workspace.cellId(startX, targetY))
+                    || workspace.isBlocked(workspace.cellId(targetX, startY))) {
+                return Collections.emptyList();
             }
         }
 
-        Node startNode = nodes[startX][startY];
-        Node targetNode = nodes[targetX][targetY];
+        // Путь свободен
+        List<Edge> path = new ArrayList<>(2);
+        path.add(new Edge(startX, startY));
+        path.add(new Edge(targetX, targetY));
+        return path;
+    }
 
-        startNode.g = 0;
-        startNode.h = heuristic(startX, startY, targetX, targetY);
+    private void markObstacles(PathSearchWorkspace workspace, BoardGeometry geometry, List<Unit> units,
+                               Unit attacker, Unit target) {
+        // Индексный обход не создаёт итератор на каждый вызов
+        for (int i = 0, size = units.size(); i < size; i++) {
+            Unit unit = units.get(i);
+            if (unit == null || !unit.isAlive()) continue;
+            if (unit == attacker || unit == target) continue;
 
-        PriorityQueue<Node> openSet = new PriorityQueue<>();
-        openSet.add(startNode);
+            int x = unit.getxCoordinate();
+            int y = unit.getyCoordinate();
 
-        boolean[][] inOpenSet = new boolean[WIDTH][HEIGHT];
-        inOpenSet[startX][startY] = true;
+            if (geometry.contains(x, y)) {
+                workspace.block(geometry.cellId(x, y));
+            }
+        }
+    }
 
-        boolean[][] closedSet = new boolean[WIDTH][HEIGHT];
+    private static boolean findPathAStar(PathSearchWorkspace workspace, BoardGeometry geometry,
+                                         int startX, int startY, int targetX, int targetY) {
+        int height = geometry.height();
+        int targetCell = geometry.cellId(targetX, targetY);
+        workspace.start(geometry.cellId(startX, startY), geometry.heuristic(startX, startY, targetX, targetY));
 
         // Главный цикл A*
-        while (!openSet.isEmpty()) {
-            Node current = openSet.poll();
+        while (!workspace.isHeapEmpty()) {
+            int current = workspace.poll();
 
-            if (current.x == targetX && current.y == targetY) {
-                return reconstructPath(current);
+            if (current == targetCell) {
+                return true;
             }
 
-            inOpenSet[current.x][current.y] = false;
-            closedSet[current.x][current.y] = true;
+            workspace.close(current);
+
+            int currentX = current / height;
+            int currentY = current % height;
+            int currentG = workspace.g(current);
 
             // Проверяем всех соседей
-            for (int[] dir : DIRECTIONS) {
-                int nx = current.x + dir[0];
-                int ny = current.y + dir[1];
+            for (int dir = 0; dir < DX.length; dir++) {
+                int nx = currentX + DX[dir];
+                int ny = currentY + DY[dir];
 
                 // Проверка валидности клетки
-                if (!isValidCoordinate(nx, ny) || obstacles[nx][ny] || closedSet[nx][ny]) {
-                    continue;
-                }
+                if (!geometry.contains(nx, ny)) continue;
+
+                int neighbor = geometry.cellId(nx, ny);
+                if (workspace.isBlocked(neighbor) || workspace.isClosed(neighbor)) continue;
 
                 // Для диагонального движения проверяем углы
-                if (Math.abs(dir[0]) == 1 && Math.abs(dir[1]) == 1) {
-                    if (obstacles[current.x][ny] || obstacles[nx][current.y]) {
-                        continue;
-                    }
+                boolean diagonal = DX[dir] != 0 && DY[dir] != 0;
+                if (diagonal && (workspace.isBlocked(geometry.cellId(currentX, ny))
+                        || workspace.isBlocked(geometry.cellId(nx, currentY)))) {
+                    continue;
                 }
 
                 // Стоимость движения
-                int moveCost = (Math.abs(dir[0]) == 1 && Math.abs(dir[1]) == 1)
-                        ? DIAGONAL_COST : STRAIGHT_COST;
-                int tentativeG = current.g + moveCost;
+                int tentativeG = currentG + geometry.stepCost(diagonal);
 
-                Node neighbor = nodes[nx][ny];
+                if (tentativeG < workspace.g(neighbor)) {
+                    workspace.relax(neighbor, current, tentativeG,
+                            tentativeG + geometry.heuristic(nx, ny, targetX, targetY));
+                }
+            }
+        }
 
-                if (tentativeG < neighbor.g) {
-                    neighbor.parent = current;
-                    neighbor.g = tentativeG;
-                    neighbor.h = heuristic(nx, ny, targetX, targetY);
+        // Путь не найден
+        return false;
+    }
+
+    private List<Edge> findPathByDistanceField(PathSearchWorkspace workspace, BoardGeometry geometry,
+                                               OccupancyBitboard board,
+                                               int startX, int startY, int targetX, int targetY) {
+        int[] field = DistanceFieldCache.current().field(geometry, board, targetX, targetY);
+        int height = geometry.height();
+        int targetCell = geometry.cellId(targetX, targetY);
+
+        // Первый шаг: сосед старта с минимальной суммой стоимости шага и расстояния до цели
+        int next = -1;
+        int best = DistanceFieldCache.UNREACHABLE;
+        for (int dir = 0; dir < DX.length; dir++) {
+            int nx = startX + DX[dir];
+            int ny = startY + DY[dir];
+            if (!isFieldMove(geometry, board, targetCell, startX, startY, nx, ny)) continue;
+
+            int distance = field[geometry.cellId(nx, ny)];
+            if (distance == DistanceFieldCache.UNREACHABLE) continue;
+
+            int total = distance + stepCost(geometry, dir);
+            if (total < best) {
+                best = total;
+                next = geometry.cellId(nx, ny);
+            }
+        }
 
-                    if (!inOpenSet[nx][ny]) {
-                        openSet.add(neighbor);
-                        inOpenSet[nx][ny] = true;
-                    }
+        if (next == -1) {
+            return Collections.emptyList();
+        }
+
+        int[] buffer = workspace.pathBuffer();
+        int length = 0;
+        buffer[length++] = geometry.cellId(startX, startY);
+        buffer[length++] = next;
+
+        // Дальше спускаемся по градиенту: сосед, на котором расстояние уменьшается ровно на шаг
+        int current = next;
+        while (current != targetCell) {
+            int x = current / height;
+            int y = current % height;
+            int descent = -1;
+
+            for (int dir = 0; dir < DX.length && descent == -1; dir++) {
+                int nx = x + DX[dir];
+                int ny = y + DY[dir];
+                if (!isFieldMove(geometry, board, targetCell, x, y, nx, ny)) continue;
+
+                int neighbor = geometry.cellId(nx, ny);
+                if (field[neighbor] != DistanceFieldCache.UNREACHABLE
+                        && field[neighbor] + stepCost(geometry, dir) == field[current]) {
+                    descent = neighbor;
                 }
             }
+
+            if (descent == -1 || length == buffer.length) {
+                // Поле не соответствует доске - не должно происходить
+                return Collections.emptyList();
+            }
+            buffer[length++] = descent;
+            current = descent;
         }
 
-        // Путь не найден
-        return Collections.emptyList();
+        List<Edge> path = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            path.add(new Edge(buffer[i] / height, buffer[i] % height));
+        }
+        return path;
+    }
+
+    // Ход по правилам поля расстояний: занятые клетки (кроме цели) непроходимы, углы не срезаются
+    private static boolean isFieldMove(BoardGeometry geometry, OccupancyBitboard board, int targetCell,
+                                       int x, int y, int nx, int ny) {
+        if (!isFieldWalkable(geometry, board, targetCell, nx, ny)) return false;
+        return nx == x || ny == y
+                || (isFieldWalkable(geometry, board, targetCell, x, ny)
+                && isFieldWalkable(geometry, board, targetCell, nx, y));
     }
 
-    private int heuristic(int x1, int y1, int x2, int y2) {
-        // Эвристика Чебышева (оптимальна для 8 направлений)
-        int dx = Math.abs(x1 - x2);
-        int dy = Math.abs(y1 - y2);
-        return Math.max(dx, dy) * STRAIGHT_COST;
+    private static boolean isFieldWalkable(BoardGeometry geometry, OccupancyBitboard board, int targetCell,
+                                           int x, int y) {
+        if (!geometry.contains(x, y)) return false;
+        int cell = geometry.cellId(x, y);
+        return cell == targetCell || !board.isOccupied(cell);
     }
 
-    private List<Edge> reconstructPath(Node targetNode) {
-        LinkedList<Edge> path = new LinkedList<>();
-        Node current = targetNode;
+    private static int stepCost(BoardGeometry geometry, int dir) {
+        return geometry.stepCost(DX[dir] != 0 && DY[dir] != 0);
+    }
 
-        // Восстанавливаем путь от цели к старту
-        while (current != null) {
-            path.addFirst(new Edge(current.x, current.y));
-            current = current.parent;
+    private List<Edge> reconstructPath(PathSearchWorkspace workspace, int targetCell) {
+        // Восстанавливаем путь от цели к старту в буфер рабочего пространства.
+        // Соседние звенья цепочки родителей лежат на одной прямой или диагонали
+        // (у A* - соседние клетки, у JPS - точки прыжка), промежуточные клетки достраиваются.
+        int height = workspace.height();
+        int[] buffer = workspace.pathBuffer();
+        int length = 0;
+        buffer[length++] = targetCell;
+
+        for (int cell = targetCell, parent = workspace.parent(cell); parent != -1;
+             cell = parent, parent = workspace.parent(cell)) {
+            int x = cell / height;
+            int y = cell % height;
+            int stepX = Integer.signum(parent / height - x);
+            int stepY = Integer.signum(parent % height - y);
+
+            while (workspace.cellId(x, y) != parent) {
+                x += stepX;
+                y += stepY;
+                buffer[length++] = workspace.cellId(x, y);
+            }
         }
 
-        return new ArrayList<>(path);
+        List<Edge> path = new ArrayList<>(length);
+        for (int i = length - 1; i >= 0; i--) {
+            path.add(new Edge(buffer[i] / height, buffer[i] % height));
+        }
+        return path;
     }
-}
\ No newline at end of file
+}
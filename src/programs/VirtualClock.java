@@ -0,0 +1,44 @@
+package programs;
+
+/**
+ * Виртуальные часы вместо Thread.sleep для детерминированного боя: каждая пауза
+ * сдвигает время на фиксированный шаг и возвращается сразу. Время боя (сколько бы он шёл
+ * с паузами) считается без зависимости от планировщика и загрузки машины.
+ * Как и Thread.sleep, пауза бросает InterruptedException, если поток прерван.
+ * Экземпляр предназначен для одного потока боя.
+ */
+public final class VirtualClock implements BattlePacer {
+
+    private final long stepMillis;
+    private long elapsedMillis;
+    private long ticks;
+
+    public VirtualClock(long stepMillis) {
+        if (stepMillis < 0) {
+            throw new IllegalArgumentException("Шаг виртуальных часов не может быть отрицательным");
+        }
+        this.stepMillis = stepMillis;
+    }
+
+    @Override
+    public void pause() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        elapsedMillis += stepMillis;
+        ticks++;
+    }
+
+    public long getStepMillis() {
+        return stepMillis;
+    }
+
+    // Сумма всех пауз: столько бой шёл бы с Thread.sleep
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getTicks() {
+        return ticks;
+    }
+}